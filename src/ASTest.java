@@ -348,4 +348,34 @@ public class ASTest
         q.clear();
         assertEquals("Wrong number", substring(AnalyzeSolution.finished(q), 0, 12));
     }
+
+    @Test
+    public void testbadSquareMask()
+    {
+        // wide enough for the rows to need more than one word
+        java.util.Random random = new java.util.Random(26);
+        int size = 130;
+        int[][] numbers = new int[size][size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                numbers[r][c] = random.nextInt(5) - 1;
+        Puzzle big = new Puzzle(PuzzleDefinition.intern(numbers));
+        for (int i = 0; i < 20000; i++)
+        {
+            if (random.nextBoolean()) big.horizontalClick(random.nextInt(size + 1), random.nextInt(size));
+            else                      big.verticalClick(random.nextInt(size), random.nextInt(size + 1));
+        }
+        
+        int bad = 0;
+        long[][] mask = AnalyzeSolution.badSquareMask(big);
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+            {
+                boolean wrong = numbers[r][c] != -1 && numbers[r][c] != AnalyzeSolution.linesAroundSquare(big, r, c);
+                assertEquals(wrong, (mask[r][c / 64] >>> c & 1) == 1);
+                if (wrong) bad++;
+            }
+        assertEquals(bad, AnalyzeSolution.badSquareCount(big));
+        assertEquals(bad, AnalyzeSolution.badSquares(big).size());
+    }
 }
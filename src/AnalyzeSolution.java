@@ -22,16 +22,16 @@ public class AnalyzeSolution
      */
     public static int linesAroundSquare(Puzzle p, int r, int c)
     {
-        boolean[][] horizontal = p.getHorizontal();
-        boolean[][] vertical = p.getVertical();
+        // one square reads its segments straight from the state, not the boolean views
+        SolutionState state = p.getState();
         
         // validate square and count lines
         int lines = 0;
         if (r >= 0 && r < p.size() && c >= 0 && c < p.size()) {
-            if (horizontal[r][c]) lines++; // top
-            if (vertical[r][c]) lines++; // left
-            if (horizontal[r + 1][c]) lines++; // bottom
-            if (vertical[r][c + 1]) lines++; // right
+            if (state.isHorizontal(r, c)) lines++; // top
+            if (state.isVertical(r, c)) lines++; // left
+            if (state.isHorizontal(r + 1, c)) lines++; // bottom
+            if (state.isVertical(r, c + 1)) lines++; // right
         }
         
         return lines;
@@ -79,20 +79,87 @@ public class AnalyzeSolution
     public static ArrayList<int[]> badSquares(Puzzle p)
     {
         ArrayList<int[]> badSquares = new ArrayList<int[]>();
-        for (int r = 0; r < p.size(); r++) {
-            for (int c = 0; c < p.size(); c++) {
-                int requiredLines = p.getPuzzle()[r][c];
-                int drawnLines = linesAroundSquare(p, r, c);
-                
-                // incorrect
-                if (drawnLines != requiredLines && requiredLines != -1) {
-                    badSquares.add(new int[]{r,c});
+        long[][] mask = badSquareMask(p);
+        for (int r = 0; r < mask.length; r++) {
+            for (int w = 0; w < mask[r].length; w++) {
+                for (long bits = mask[r][w]; bits != 0; bits &= bits - 1) {
+                    badSquares.add(new int[]{r, (w << 6) + Long.numberOfTrailingZeros(bits)});
                 }
             }
         }
         
         return badSquares;
     }
+    
+    /**
+     * Returns the number of squares in p that are surrounded by the wrong number of line segments.
+     */
+    public static int badSquareCount(Puzzle p)
+    {
+        PuzzleDefinition definition = p.getDefinition();
+        long[][] clueMask = definition.getClueMask();
+        long[][] clueLowBits = definition.getClueLowBits();
+        long[][] clueHighBits = definition.getClueHighBits();
+        long[][] horizontal = p.getHorizontalBits();
+        long[][] vertical = p.getVerticalBits();
+        
+        int count = 0;
+        for (int r = 0; r < clueMask.length; r++) {
+            long[] left = vertical[r];
+            for (int w = 0; w < clueMask[r].length; w++) {
+                long right = (left[w] >>> 1) | (w + 1 < left.length ? left[w + 1] << 63 : 0);
+                count += Long.bitCount(badSquareWord(horizontal[r][w], horizontal[r + 1][w], left[w], right, clueMask[r][w], clueLowBits[r][w], clueHighBits[r][w]));
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the squares in p that are surrounded by the wrong number of line segments,
+     * as a bitmask for each row: Square r,c is bad if bit c % 64 of mask[r][c / 64] is set.
+     * 64 squares are checked at once, using the bit-packed rows of the solution.
+     */
+    public static long[][] badSquareMask(Puzzle p)
+    {
+        PuzzleDefinition definition = p.getDefinition();
+        long[][] clueMask = definition.getClueMask();
+        long[][] clueLowBits = definition.getClueLowBits();
+        long[][] clueHighBits = definition.getClueHighBits();
+        long[][] horizontal = p.getHorizontalBits();
+        long[][] vertical = p.getVerticalBits();
+        
+        long[][] mask = new long[p.size()][];
+        for (int r = 0; r < mask.length; r++) {
+            mask[r] = new long[clueMask[r].length];
+            long[] left = vertical[r];
+            for (int w = 0; w < mask[r].length; w++) {
+                // the right line of square c is the left line of square c + 1
+                long right = (left[w] >>> 1) | (w + 1 < left.length ? left[w + 1] << 63 : 0);
+                mask[r][w] = badSquareWord(horizontal[r][w], horizontal[r + 1][w], left[w], right, clueMask[r][w], clueLowBits[r][w], clueHighBits[r][w]);
+            }
+        }
+        return mask;
+    }
+    
+    /**
+     * Returns which of 64 squares are surrounded by the wrong number of line segments,
+     * given their top, bottom, left and right lines, which of them have numbers,
+     * and the two low bits of those numbers (each one bit per square).
+     */
+    public static long badSquareWord(long top, long bottom, long left, long right, long clueMask, long clueLowBits, long clueHighBits)
+    {
+        // add the four lines of each square into a 3-bit count
+        long topBottom = top ^ bottom;
+        long leftRight = left ^ right;
+        long ones = topBottom ^ leftRight;
+        long carry = topBottom & leftRight;
+        long topBottomCarry = top & bottom;
+        long leftRightCarry = left & right;
+        long twos = topBottomCarry ^ leftRightCarry ^ carry;
+        long fours = (topBottomCarry & leftRightCarry) | (carry & (topBottomCarry ^ leftRightCarry));
+        
+        return clueMask & ((ones ^ clueLowBits) | (twos ^ clueHighBits) | fours);
+    }
 
     /**
      * Returns all dots connected by a single line segment to Dot r,c in p.
@@ -204,7 +271,7 @@ public class AnalyzeSolution
         int pathLinesCount = 0;
         
         // any cells with the wrong number of lines around them
-        if (badSquares(p).size() > 0) return "Wrong number";
+        if (badSquareCount(p) > 0) return "Wrong number";
         
         // checks that the lines make a loop
         String tracePathResult = tracePath(p, lineSegments[1], lineSegments[2]);
@@ -0,0 +1,227 @@
+/**
+ * ArchiveDedup removes duplicate boards from an archive of Slither Link puzzles,
+ * counting a board rotated or mirrored as a duplicate too.
+ *
+ * Files are streamed one at a time: each is parsed, put in canonical form (see CanonicalForm),
+ * and kept only if its canonical hash hasn't been seen before. The hashes seen are held in a
+ * compact open-addressing table of primitive arrays (at most 32 bytes per distinct board),
+ * so tens of millions of boards fit in memory on one machine. Two different boards are only
+ * mistaken for each other if their 64-bit hashes collide, which for 10^8 boards has a chance
+ * of about 1 in 4000.
+ *
+ * Usage: java ArchiveDedup -out directory [file or directory]...
+ * Directories are searched for eg*.txt files. The output directory gets:
+ *   eg{size}_{k}.txt   the k-th distinct board, byte for byte as it was in the archive
+ *   sources.txt        a line "eg{size}_{k}.txt source" for each board kept
+ *   duplicates.txt     a line "source eg{size}_{k}.txt" for each duplicate, naming the board
+ *                      it duplicates, and "source unreadable" for files that aren't puzzles
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class ArchiveDedup
+{
+    /**
+     * The canonical hashes seen so far, each with the number of the board kept for it.
+     * Hash 0 marks an empty slot, so a board hashing to 0 is stored as 1.
+     */
+    private static class Seen
+    {
+        private long[] hashes = new long[1 << 16];
+        private int[] boards = new int[1 << 16];
+        private int size;
+
+        /**
+         * Returns the board kept for hash, or adds board for it and returns -1.
+         */
+        int putIfAbsent(long hash, int board)
+        {
+            if (hash == 0) hash = 1;
+            int mask = hashes.length - 1;
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            while (hashes[slot] != 0) {
+                if (hashes[slot] == hash) return boards[slot];
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            boards[slot] = board;
+            if (++size * 4 > hashes.length * 3) grow();
+            return -1;
+        }
+
+        /**
+         * Doubles the table.
+         */
+        private void grow()
+        {
+            long[] oldHashes = hashes;
+            int[] oldBoards = boards;
+            hashes = new long[2 * oldHashes.length];
+            boards = new int[2 * oldBoards.length];
+            int mask = hashes.length - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                long hash = oldHashes[i];
+                if (hash == 0) continue;
+                int slot = (int) (hash ^ hash >>> 32) & mask;
+                while (hashes[slot] != 0) slot = (slot + 1) & mask;
+                hashes[slot] = hash;
+                boards[slot] = oldBoards[i];
+            }
+        }
+    }
+
+    private final Path output;
+    private final Seen seen = new Seen();
+    private int kept;
+    private long duplicates;
+    private long unreadable;
+
+    /**
+     * Creates a deduplicator writing the cleaned archive into the directory output.
+     */
+    public ArchiveDedup(Path output)
+    {
+        this.output = output;
+    }
+
+    /**
+     * Reads every board named by sources (files as given, and eg*.txt inside directories),
+     * writing the distinct ones and the reports to the output directory.
+     */
+    public void run(List<Path> sources) throws IOException
+    {
+        Files.createDirectories(output);
+        try (Writer keptList = Files.newBufferedWriter(output.resolve("sources.txt"), StandardCharsets.UTF_8);
+             Writer report = Files.newBufferedWriter(output.resolve("duplicates.txt"), StandardCharsets.UTF_8)) {
+            for (Path source : sources) {
+                if (Files.isDirectory(source)) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(source, "eg*.txt")) {
+                        for (Path file : files) add(file, keptList, report);
+                    }
+                } else {
+                    add(source, keptList, report);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the board in file if it hasn't been seen before, and reports it otherwise.
+     */
+    private void add(Path file, Writer keptList, Writer report) throws IOException
+    {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            bytes = new byte[0];
+        }
+        int[][] puzzle = parse(bytes);
+        if (puzzle == null) {
+            unreadable++;
+            report.write(file + " unreadable\n");
+            return;
+        }
+
+        int board = seen.putIfAbsent(new CanonicalForm(puzzle).getHash(), kept + 1);
+        if (board >= 0) {
+            duplicates++;
+            report.write(file + " " + name(puzzle.length, board) + "\n");
+            return;
+        }
+
+        kept++;
+        String name = name(puzzle.length, kept);
+        Files.write(output.resolve(name), bytes);
+        keptList.write(name + " " + file + "\n");
+    }
+
+    /**
+     * Returns the name of the k-th board kept, which has the given size.
+     */
+    private static String name(int size, int k)
+    {
+        return "eg" + size + "_" + k + ".txt";
+    }
+
+    /**
+     * Returns the numbers of a board in eg*.txt format, or null if bytes isn't a square board.
+     */
+    public static int[][] parse(byte[] bytes)
+    {
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n"))
+            if (!line.trim().isEmpty()) lines.add(line.trim());
+        int size = lines.size();
+        if (size == 0) return null;
+
+        int[][] puzzle = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            String[] rowValues = lines.get(r).split("\\s+");
+            if (rowValues.length != size) return null;
+            for (int c = 0; c < size; c++) {
+                try {
+                    puzzle[r][c] = Integer.parseInt(rowValues[c]);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (puzzle[r][c] < -1 || puzzle[r][c] > 3) return null;
+            }
+        }
+        return puzzle;
+    }
+
+    /**
+     * Returns the number of distinct boards kept.
+     */
+    public int getKept()
+    {
+        return kept;
+    }
+
+    /**
+     * Returns the number of duplicate boards dropped.
+     */
+    public long getDuplicates()
+    {
+        return duplicates;
+    }
+
+    /**
+     * Returns the number of files that weren't boards.
+     */
+    public long getUnreadable()
+    {
+        return unreadable;
+    }
+
+    /**
+     * Deduplicates an archive from the command line.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        Path output = null;
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-out")) output = Paths.get(args[++i]);
+            else sources.add(Paths.get(args[i]));
+        }
+        if (output == null) {
+            System.err.println("Usage: java ArchiveDedup -out directory [file or directory]...");
+            System.exit(1);
+        }
+        if (sources.isEmpty()) sources.add(Paths.get("."));
+
+        long start = System.nanoTime();
+        ArchiveDedup dedup = new ArchiveDedup(output);
+        dedup.run(sources);
+        System.out.printf("%d kept, %d duplicates, %d unreadable in %.2fs%n",
+                          dedup.getKept(), dedup.getDuplicates(), dedup.getUnreadable(), (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * This class provides unit test cases for the ArchiveDedup class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class ArchiveDedupTest
+{
+    private Path archive;
+    private Path cleaned;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        archive = Files.createTempDirectory("archive");
+        cleaned = archive.resolve("cleaned");
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        Files.walk(archive).forEach(files::add);
+        Collections.reverse(files);
+        for (Path file : files) Files.delete(file);
+    }
+
+    // Writes numbers to the archive in eg*.txt format.
+    private Path write(String name, int[][] numbers) throws IOException
+    {
+        StringWriter text = new StringWriter();
+        LoopGenerator.write(numbers, text);
+        return Files.write(archive.resolve(name), text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testrun() throws IOException
+    {
+        int[][] first = new LoopGenerator(6, 1).getClues(0.5, 1);
+        int[][] second = new LoopGenerator(6, 2).getClues(0.5, 2);
+        List<Path> files = new ArrayList<>();
+        files.add(write("eg6_a.txt", first));
+        files.add(write("eg6_b.txt", CanonicalForm.transform(first, 1)));
+        files.add(write("eg6_c.txt", second));
+        files.add(write("eg6_d.txt", CanonicalForm.transform(first, 6)));
+        files.add(write("eg6_e.txt", CanonicalForm.transform(second, 4)));
+        files.add(Files.write(archive.resolve("eg6_f.txt"), "1 2\n3\n".getBytes(StandardCharsets.UTF_8)));
+
+        ArchiveDedup dedup = new ArchiveDedup(cleaned);
+        dedup.run(files);
+        assertEquals(2, dedup.getKept());
+        assertEquals(3, dedup.getDuplicates());
+        assertEquals(1, dedup.getUnreadable());
+
+        // the distinct boards are kept byte for byte
+        assertArrayEquals(Files.readAllBytes(files.get(0)), Files.readAllBytes(cleaned.resolve("eg6_1.txt")));
+        assertArrayEquals(Files.readAllBytes(files.get(2)), Files.readAllBytes(cleaned.resolve("eg6_2.txt")));
+        assertArrayEquals(new String[] {"eg6_1.txt " + files.get(0), "eg6_2.txt " + files.get(2)},
+                          Files.readAllLines(cleaned.resolve("sources.txt")).toArray());
+        assertArrayEquals(new String[] {files.get(1) + " eg6_1.txt", files.get(3) + " eg6_1.txt",
+                                        files.get(4) + " eg6_2.txt", files.get(5) + " unreadable"},
+                          Files.readAllLines(cleaned.resolve("duplicates.txt")).toArray());
+    }
+
+    @Test
+    public void testparse()
+    {
+        assertArrayEquals(new int[][] {{-1, 3}, {0, 2}}, ArchiveDedup.parse("-1 3\r\n0  2\n\n".getBytes(StandardCharsets.UTF_8)));
+        assertNull(ArchiveDedup.parse("1 2 3\n1 2 3\n".getBytes(StandardCharsets.UTF_8)));
+        assertNull(ArchiveDedup.parse("4 0\n0 0\n".getBytes(StandardCharsets.UTF_8)));
+        assertNull(ArchiveDedup.parse("a 0\n0 0\n".getBytes(StandardCharsets.UTF_8)));
+        assertNull(ArchiveDedup.parse(new byte[0]));
+    }
+}
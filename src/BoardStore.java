@@ -0,0 +1,384 @@
+/**
+ * BoardStore holds many Slither Link games of one size outside the Java heap, for jobs that
+ * keep millions of boards at once. Each board takes one fixed-size slot of longs in a direct
+ * buffer: its numbers bit-packed as in PuzzleDefinition (which squares have one, and their two
+ * low bits), then its line segments bit-packed as in SolutionState. The heap only holds a few
+ * buffers however many boards there are, so the garbage collector has nothing more to scan
+ * as the store grows.
+ *
+ * A Slot is a reusable view of one board, with the same operations as a Puzzle, so boards can
+ * be looked at and played without being copied onto the heap; get() makes a real Puzzle.
+ * Bulk operations like badSquareCounts() run straight over the buffers, 64 squares at a time.
+ *
+ * Usage: java BoardStore size boards
+ * fills a store with random boards and reports the memory used and the time spent in GC.
+ * The JVM only allows as much direct memory as heap unless told otherwise, so big stores need
+ * -XX:MaxDirectMemorySize as well.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.lang.management.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class BoardStore
+{
+    public static final int CHUNK_BYTES = 1 << 26;  // the size of each direct buffer
+
+    private final int size;
+    private final int words;            // longs per row of squares or horizontal segments
+    private final int verticalWords;    // longs per row of vertical segments
+    private final int lowOffset;        // where each part of a slot starts, in longs
+    private final int highOffset;
+    private final int horizontalOffset;
+    private final int verticalOffset;
+    private final int slotLongs;
+    private final int slotsPerChunk;
+    private final List<LongBuffer> chunks = new ArrayList<>();
+    private int count;
+
+    /**
+     * A view of one board in the store. Moving it to another board is free, so one view can
+     * visit every board; changes are written straight into the store.
+     */
+    public class Slot
+    {
+        private LongBuffer chunk;
+        private int base;       // where the board starts in chunk, in longs
+        private int slot;
+
+        private Slot(int slot)
+        {
+            moveTo(slot);
+        }
+
+        /**
+         * Makes this view show board slot.
+         */
+        public Slot moveTo(int slot)
+        {
+            checkSlot(slot);
+            this.slot = slot;
+            chunk = chunks.get(slot / slotsPerChunk);
+            base = (slot % slotsPerChunk) * slotLongs;
+            return this;
+        }
+
+        /**
+         * Returns the board this view shows.
+         */
+        public int getSlot()
+        {
+            return slot;
+        }
+
+        /**
+         * Returns the size of the puzzle.
+         */
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Returns the number in Square r,c, or -1 if it has none.
+         */
+        public int getNumber(int r, int c)
+        {
+            int word = r * words + (c >>> 6);
+            if (!bit(chunk.get(base + word), c)) return -1;
+            return (bit(chunk.get(base + lowOffset + word), c) ? 1 : 0) | (bit(chunk.get(base + highOffset + word), c) ? 2 : 0);
+        }
+
+        /**
+         * Returns whether the horizontal line segment to the right of Dot r,c is on.
+         */
+        public boolean isHorizontal(int r, int c)
+        {
+            return bit(chunk.get(base + horizontalOffset + r * words + (c >>> 6)), c);
+        }
+
+        /**
+         * Returns whether the vertical line segment below Dot r,c is on.
+         */
+        public boolean isVertical(int r, int c)
+        {
+            return bit(chunk.get(base + verticalOffset + r * verticalWords + (c >>> 6)), c);
+        }
+
+        /**
+         * Toggles the horizontal line segment to the right of Dot r,c, if the indices are legal.
+         * Otherwise do nothing.
+         */
+        public void horizontalClick(int r, int c)
+        {
+            if (r >= 0 && r <= size && c >= 0 && c < size) flip(base + horizontalOffset + r * words + (c >>> 6), c);
+        }
+
+        /**
+         * Toggles the vertical line segment below Dot r,c, if the indices are legal.
+         * Otherwise do nothing.
+         */
+        public void verticalClick(int r, int c)
+        {
+            if (r >= 0 && r < size && c >= 0 && c <= size) flip(base + verticalOffset + r * verticalWords + (c >>> 6), c);
+        }
+
+        /**
+         * Clears all line segments out of the board.
+         */
+        public void clear()
+        {
+            for (int i = horizontalOffset; i < slotLongs; i++) chunk.put(base + i, 0);
+        }
+
+        /**
+         * Returns the number of squares surrounded by the wrong number of line segments,
+         * as AnalyzeSolution.badSquareCount does for a Puzzle.
+         */
+        public int badSquareCount()
+        {
+            return BoardStore.this.badSquareCount(chunk, base);
+        }
+
+        private void flip(int index, int c)
+        {
+            chunk.put(index, chunk.get(index) ^ 1L << c);
+        }
+    }
+
+    /**
+     * Creates an empty store for boards of the given size.
+     */
+    public BoardStore(int size)
+    {
+        this(size, CHUNK_BYTES);
+    }
+
+    /**
+     * Creates an empty store for boards of the given size, in direct buffers of about chunkBytes each.
+     */
+    public BoardStore(int size, int chunkBytes)
+    {
+        this.size = size;
+        words = (size + 63) / 64;
+        verticalWords = (size + 1 + 63) / 64;
+        lowOffset = size * words;
+        highOffset = 2 * size * words;
+        horizontalOffset = 3 * size * words;
+        verticalOffset = horizontalOffset + (size + 1) * words;
+        slotLongs = verticalOffset + size * verticalWords;
+        slotsPerChunk = Math.max(1, chunkBytes / (8 * slotLongs));
+    }
+
+    /**
+     * Returns the size of the boards in the store.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of boards in the store.
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes the store has taken outside the heap.
+     */
+    public long offHeapBytes()
+    {
+        return (long) chunks.size() * slotsPerChunk * slotLongs * 8;
+    }
+
+    /**
+     * Adds the board p (its numbers and current solution) to the store, and returns its slot.
+     * Throws IllegalArgumentException if p is the wrong size.
+     */
+    public int add(Puzzle p)
+    {
+        checkSize(p);
+        if (count == chunks.size() * slotsPerChunk) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(slotsPerChunk * slotLongs * 8).order(ByteOrder.nativeOrder());
+            chunks.add(buffer.asLongBuffer());
+        }
+        count++;
+        set(count - 1, p);
+        return count - 1;
+    }
+
+    /**
+     * Replaces board slot with p.
+     * Throws IllegalArgumentException if p is the wrong size.
+     */
+    public void set(int slot, Puzzle p)
+    {
+        checkSlot(slot);
+        checkSize(p);
+
+        LongBuffer chunk = chunks.get(slot / slotsPerChunk);
+        int base = (slot % slotsPerChunk) * slotLongs;
+        PuzzleDefinition definition = p.getDefinition();
+        put(chunk, base, definition.getClueMask());
+        put(chunk, base + lowOffset, definition.getClueLowBits());
+        put(chunk, base + highOffset, definition.getClueHighBits());
+        put(chunk, base + horizontalOffset, p.getHorizontalBits());
+        put(chunk, base + verticalOffset, p.getVerticalBits());
+    }
+
+    /**
+     * Copies rows into chunk from index on, row after row.
+     */
+    private static void put(LongBuffer chunk, int index, long[][] rows)
+    {
+        for (long[] row : rows) {
+            for (long word : row) chunk.put(index++, word);
+        }
+    }
+
+    /**
+     * Returns board slot as a Puzzle on the heap; its definition is interned as usual.
+     */
+    public Puzzle get(int slot)
+    {
+        Slot view = view(slot);
+        int[][] numbers = new int[size][size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                numbers[r][c] = view.getNumber(r, c);
+
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(numbers));
+        SolutionState state = p.getState();
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (c < size && view.isHorizontal(r, c)) state.setHorizontal(r, c, true);
+                if (r < size && view.isVertical(r, c)) state.setVertical(r, c, true);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Returns a view of board slot.
+     */
+    public Slot view(int slot)
+    {
+        return new Slot(slot);
+    }
+
+    /**
+     * Returns the number of bad squares (see AnalyzeSolution.badSquareCount) on every board, in slot order.
+     * The boards are checked in parallel.
+     */
+    public int[] badSquareCounts()
+    {
+        int[] counts = new int[count];
+        IntStream.range(0, count).parallel().forEach(slot ->
+            counts[slot] = badSquareCount(chunks.get(slot / slotsPerChunk), (slot % slotsPerChunk) * slotLongs));
+        return counts;
+    }
+
+    /**
+     * Returns the number of boards with no bad squares.
+     */
+    public int countValid()
+    {
+        int valid = 0;
+        for (int bad : badSquareCounts())
+            if (bad == 0) valid++;
+        return valid;
+    }
+
+    /**
+     * Returns the number of bad squares on the board starting at base in chunk.
+     */
+    private int badSquareCount(LongBuffer chunk, int base)
+    {
+        int bad = 0;
+        for (int r = 0; r < size; r++) {
+            int left = base + verticalOffset + r * verticalWords;
+            for (int w = 0; w < words; w++) {
+                int square = base + r * words + w;
+                long leftWord = chunk.get(left + w);
+                long right = (leftWord >>> 1) | (w + 1 < verticalWords ? chunk.get(left + w + 1) << 63 : 0);
+                long top = chunk.get(base + horizontalOffset + r * words + w);
+                long bottom = chunk.get(base + horizontalOffset + (r + 1) * words + w);
+                bad += Long.bitCount(AnalyzeSolution.badSquareWord(top, bottom, leftWord, right, chunk.get(square),
+                                                                   chunk.get(square + lowOffset), chunk.get(square + highOffset)));
+            }
+        }
+        return bad;
+    }
+
+    private void checkSlot(int slot)
+    {
+        if (slot < 0 || slot >= count) throw new IndexOutOfBoundsException("No board " + slot + " in a store of " + count);
+    }
+
+    private void checkSize(Puzzle p)
+    {
+        if (p.size() != size) throw new IllegalArgumentException("Expected a " + size + "x" + size + " puzzle, not " + p.size() + "x" + p.size());
+    }
+
+    private static boolean bit(long word, int c)
+    {
+        return (word >>> c & 1) != 0;
+    }
+
+    /**
+     * Fills a store with random boards, and reports the memory used and the time spent in GC.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: java BoardStore size boards");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        int boards = Integer.parseInt(args[1]);
+
+        // a few distinct boards, each added many times with different lines
+        Random random = new Random(1);
+        Puzzle[] puzzles = new Puzzle[16];
+        for (int i = 0; i < puzzles.length; i++) puzzles[i] = new LoopGenerator(size, i + 1).toPuzzle();
+
+        BoardStore store = new BoardStore(size);
+        long start = System.nanoTime();
+        for (int i = 0; i < boards; i++) {
+            Puzzle p = puzzles[i % puzzles.length];
+            int slot = store.add(p);
+            if (random.nextBoolean()) store.view(slot).horizontalClick(random.nextInt(size + 1), random.nextInt(size));
+            if (i > 0 && i % (boards / 10 + 1) == 0) report(store, start);
+        }
+        report(store, start);
+
+        long checked = System.nanoTime();
+        int valid = store.countValid();
+        System.out.printf("%d of %d boards have the right numbers; checked in %.0fms%n", valid, store.count(), (System.nanoTime() - checked) / 1e6);
+    }
+
+    /**
+     * Prints the store's size and memory use, and the GC time so far.
+     */
+    private static void report(BoardStore store, long start)
+    {
+        long gcMillis = 0;
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0, gc.getCollectionTime());
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.printf("%,d boards: %,d MB off the heap, %,d MB heap in use, %d GCs taking %dms, %.1fs%n",
+                          store.count(), store.offHeapBytes() >> 20, heap.getUsed() >> 20, gcCount, gcMillis, (System.nanoTime() - start) / 1e9);
+    }
+}
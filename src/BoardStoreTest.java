@@ -0,0 +1,139 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This class provides unit test cases for the BoardStore class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class BoardStoreTest
+{
+    private Random random;
+    private ArrayList<Puzzle> puzzles;   // what the store should hold
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        random = new Random(7);
+        puzzles = new ArrayList<>();
+    }
+
+    // Returns a size x size board made from a random loop, with some lines toggled.
+    private Puzzle randomPuzzle(int size)
+    {
+        Puzzle p = new LoopGenerator(size, random.nextInt(1000)).toPuzzle();
+        for (int i = random.nextInt(size + 1); i > 0; i--) {
+            p.horizontalClick(random.nextInt(size + 1), random.nextInt(size));
+            p.verticalClick(random.nextInt(size), random.nextInt(size + 1));
+        }
+        return p;
+    }
+
+    // Checks that the view shows the same board as p.
+    private void assertShows(Puzzle p, BoardStore.Slot view)
+    {
+        int size = p.size();
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (r < size && c < size) assertEquals(p.getPuzzle()[r][c], view.getNumber(r, c));
+                if (c < size) assertEquals(p.getHorizontal()[r][c], view.isHorizontal(r, c));
+                if (r < size) assertEquals(p.getVertical()[r][c], view.isVertical(r, c));
+            }
+        }
+        assertEquals(AnalyzeSolution.badSquareCount(p), view.badSquareCount());
+    }
+
+    @Test
+    public void testadd()
+    {
+        // 70 squares and 71 dots across need two words a row
+        for (int size : new int[] {5, 63, 64, 70}) {
+            BoardStore store = new BoardStore(size);
+            puzzles.clear();
+            for (int i = 0; i < 4; i++) {
+                Puzzle p = randomPuzzle(size);
+                puzzles.add(p);
+                assertEquals(i, store.add(p));
+            }
+            assertEquals(4, store.count());
+
+            BoardStore.Slot view = store.view(0);
+            for (int i = 0; i < puzzles.size(); i++) assertShows(puzzles.get(i), view.moveTo(i));
+
+            // a board taken back out is the same puzzle, with the same lines
+            Puzzle copy = store.get(2);
+            assertTrue(copy.getDefinition() == puzzles.get(2).getDefinition());
+            assertTrue(java.util.Arrays.deepEquals(puzzles.get(2).getHorizontal(), copy.getHorizontal()));
+            assertTrue(java.util.Arrays.deepEquals(puzzles.get(2).getVertical(), copy.getVertical()));
+        }
+    }
+
+    @Test
+    public void testclick()
+    {
+        Puzzle p = randomPuzzle(10);
+        BoardStore store = new BoardStore(10);
+        store.add(p);
+        store.add(p);
+        BoardStore.Slot view = store.view(1);
+
+        for (int i = 0; i < 200; i++) {
+            int r = random.nextInt(13) - 1;
+            int c = random.nextInt(13) - 1;
+            if (random.nextBoolean()) {
+                p.horizontalClick(r, c);
+                view.horizontalClick(r, c);
+            } else {
+                p.verticalClick(r, c);
+                view.verticalClick(r, c);
+            }
+        }
+        assertShows(p, view);
+
+        // the other copy is untouched, until it is replaced
+        view.clear();
+        assertEquals(0, store.get(1).getState().getHorizontalBits()[0][0]);
+        store.set(0, p);
+        assertShows(p, view.moveTo(0));
+
+        try {
+            store.set(0, randomPuzzle(5));
+            fail("the wrong size");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            view.moveTo(2);
+            fail("no such board");
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testbadSquareCounts()
+    {
+        // small chunks, so that the boards are spread over several buffers
+        BoardStore store = new BoardStore(12, 4096);
+        int valid = 0;
+        for (int i = 0; i < 500; i++) {
+            Puzzle p = i % 3 == 0 ? new LoopGenerator(12, i).toPuzzle() : randomPuzzle(12);
+            if (AnalyzeSolution.badSquareCount(p) == 0) valid++;
+            puzzles.add(p);
+            store.add(p);
+        }
+        assertTrue(store.offHeapBytes() > 4096 * 10);
+
+        int[] counts = store.badSquareCounts();
+        for (int i = 0; i < puzzles.size(); i++) assertEquals(AnalyzeSolution.badSquareCount(puzzles.get(i)), counts[i]);
+        assertEquals(valid, store.countValid());
+        assertTrue(valid > 0 && valid < 500);
+    }
+}
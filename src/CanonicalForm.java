@@ -0,0 +1,184 @@
+/**
+ * CanonicalForm finds the canonical orientation of a Slither Link puzzle, so the same
+ * board rotated or mirrored is recognised as the same board.
+ *
+ * Each of the 8 symmetries of a square (the identity, three rotations and four reflections)
+ * is a transform numbered 0 to 7; transform t of a grid has
+ *   grid'[r][c] = grid[sourceRow(t, n, r, c)][sourceColumn(t, n, r, c)].
+ * The canonical transform is the one giving the smallest numbers read row by row (the lowest
+ * numbered transform if the board is symmetric), and the canonical hash is a 64-bit hash of
+ * the numbers in that orientation, so all 8 orientations of a board have the same hash.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class CanonicalForm
+{
+    public static final int TRANSFORMS = 8;
+
+    private final int size;
+    private final int transform;
+    private final long[] packed;    // the canonical numbers, 16 to a long (number + 1 in each 4 bits)
+    private final long hash;
+
+    /**
+     * Finds the canonical form of the given numbers.
+     */
+    public CanonicalForm(int[][] puzzle)
+    {
+        size = puzzle.length;
+        transform = canonicalTransform(puzzle);
+
+        packed = new long[(size * size + 15) / 16];
+        int i = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++, i++) {
+                int number = puzzle[sourceRow(transform, size, r, c)][sourceColumn(transform, size, r, c)] + 1;
+                packed[i >>> 4] |= (long) number << ((i & 15) << 2);
+            }
+        }
+
+        long h = 0x9e3779b97f4a7c15L * (size + 1);
+        for (long word : packed) h = Long.rotateLeft((h ^ word) * 0xbf58476d1ce4e5b9L, 31);
+        hash = mix(h);
+    }
+
+    /**
+     * Returns the size of the puzzle.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the transform that takes the puzzle to its canonical orientation.
+     */
+    public int getTransform()
+    {
+        return transform;
+    }
+
+    /**
+     * Returns the 64-bit hash of the puzzle in its canonical orientation.
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Returns whether other is the same puzzle as this one, up to rotation and reflection.
+     */
+    public boolean sameAs(CanonicalForm other)
+    {
+        return size == other.size && hash == other.hash && Arrays.equals(packed, other.packed);
+    }
+
+    /**
+     * Returns the numbers in canonical orientation.
+     */
+    public int[][] getPuzzle()
+    {
+        int[][] puzzle = new int[size][size];
+        for (int i = 0; i < size * size; i++)
+            puzzle[i / size][i % size] = (int) (packed[i >>> 4] >>> ((i & 15) << 2) & 0xf) - 1;
+        return puzzle;
+    }
+
+    /**
+     * Returns the transform giving the smallest numbers read row by row.
+     * Transforms are dropped as soon as they are beaten, so this usually only reads the first few squares.
+     */
+    private static int canonicalTransform(int[][] puzzle)
+    {
+        int n = puzzle.length;
+        int candidates = (1 << TRANSFORMS) - 1;
+        for (int r = 0; r < n && Integer.bitCount(candidates) > 1; r++) {
+            for (int c = 0; c < n && Integer.bitCount(candidates) > 1; c++) {
+                int smallest = Integer.MAX_VALUE;
+                for (int t = 0; t < TRANSFORMS; t++)
+                    if ((candidates & 1 << t) != 0) smallest = Math.min(smallest, puzzle[sourceRow(t, n, r, c)][sourceColumn(t, n, r, c)]);
+                for (int t = 0; t < TRANSFORMS; t++)
+                    if ((candidates & 1 << t) != 0 && puzzle[sourceRow(t, n, r, c)][sourceColumn(t, n, r, c)] != smallest) candidates &= ~(1 << t);
+            }
+        }
+        return Integer.numberOfTrailingZeros(candidates);
+    }
+
+    /**
+     * Returns the row of the square that transform t moves to Square r,c, on a board of size n.
+     */
+    public static int sourceRow(int t, int n, int r, int c)
+    {
+        switch (t) {
+            case 0: case 7: return r;
+            case 1: case 6: return n - 1 - c;
+            case 2: case 5: return n - 1 - r;
+            default:        return c;
+        }
+    }
+
+    /**
+     * Returns the column of the square that transform t moves to Square r,c, on a board of size n.
+     */
+    public static int sourceColumn(int t, int n, int r, int c)
+    {
+        switch (t) {
+            case 0: case 5: return c;
+            case 1: case 4: return r;
+            case 2: case 7: return n - 1 - c;
+            default:        return n - 1 - r;
+        }
+    }
+
+    /**
+     * Returns the transform that undoes transform t.
+     */
+    public static int inverse(int t)
+    {
+        // the two quarter turns undo each other; everything else undoes itself
+        return t == 1 ? 3 : t == 3 ? 1 : t;
+    }
+
+    /**
+     * Returns transform t of a square grid of numbers.
+     */
+    public static int[][] transform(int[][] grid, int t)
+    {
+        int n = grid.length;
+        int[][] result = new int[n][n];
+        for (int r = 0; r < n; r++)
+            for (int c = 0; c < n; c++)
+                result[r][c] = grid[sourceRow(t, n, r, c)][sourceColumn(t, n, r, c)];
+        return result;
+    }
+
+    /**
+     * Returns transform t of a square grid of flags.
+     */
+    public static boolean[][] transform(boolean[][] grid, int t)
+    {
+        int n = grid.length;
+        boolean[][] result = new boolean[n][n];
+        for (int r = 0; r < n; r++)
+            for (int c = 0; c < n; c++)
+                result[r][c] = grid[sourceRow(t, n, r, c)][sourceColumn(t, n, r, c)];
+        return result;
+    }
+
+    /**
+     * Mixes the bits of h, so nearby inputs give unrelated hashes.
+     */
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93a6b8d1f2dL;
+        return h ^ h >>> 33;
+    }
+}
@@ -0,0 +1,60 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides unit test cases for the CanonicalForm class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class CanonicalFormTest
+{
+    private int[][] puzzle;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        puzzle = new LoopGenerator(9, 3).getClues(0.6, 3);
+    }
+
+    @Test
+    public void testtransform()
+    {
+        for (int t = 0; t < CanonicalForm.TRANSFORMS; t++) {
+            int[][] turned = CanonicalForm.transform(puzzle, t);
+            assertArrayEquals(puzzle, CanonicalForm.transform(turned, CanonicalForm.inverse(t)));
+        }
+
+        // the 8 transforms of an asymmetric board are all different
+        int[][] numbered = new int[3][3];
+        for (int i = 0; i < 9; i++) numbered[i / 3][i % 3] = i;
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        for (int t = 0; t < CanonicalForm.TRANSFORMS; t++)
+            seen.add(java.util.Arrays.deepToString(CanonicalForm.transform(numbered, t)));
+        assertEquals(8, seen.size());
+    }
+
+    @Test
+    public void testhash()
+    {
+        CanonicalForm form = new CanonicalForm(puzzle);
+        for (int t = 0; t < CanonicalForm.TRANSFORMS; t++) {
+            CanonicalForm turned = new CanonicalForm(CanonicalForm.transform(puzzle, t));
+            assertEquals(form.getHash(), turned.getHash());
+            assertTrue(form.sameAs(turned));
+            assertArrayEquals(form.getPuzzle(), turned.getPuzzle());
+        }
+        assertArrayEquals(form.getPuzzle(), CanonicalForm.transform(puzzle, form.getTransform()));
+
+        int[][] changed = CanonicalForm.transform(puzzle, 0);
+        changed[4][4] = changed[4][4] == 2 ? 1 : 2;
+        assertTrue(form.getHash() != new CanonicalForm(changed).getHash());
+        assertFalse(form.sameAs(new CanonicalForm(changed)));
+    }
+}
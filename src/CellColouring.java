@@ -0,0 +1,131 @@
+/**
+ * CellColouring keeps track of which squares of a Slither Link puzzle are known to be
+ * on the same side of the loop (both inside or both outside), and which on different sides.
+ * Squares are numbered r * size + c, and one extra number stands for everything outside the board.
+ *
+ * It is a union-find where each square also records whether it is the same colour
+ * as its parent, so the colours of any two squares in a set are known relative to each other.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+public class CellColouring
+{
+    public static final int SAME = 0;
+    public static final int DIFFERENT = 1;
+    public static final int UNKNOWN = -1;
+
+    private final int[] parent;
+    private final byte[] parity;        // 1 if the square is a different colour to its parent
+    private final byte[] rank;
+    private int foundParity;            // the parity of the last square found, relative to its root
+
+    /**
+     * Creates a colouring of the given number of squares (including outside), with nothing known.
+     */
+    public CellColouring(int squares)
+    {
+        parent = new int[squares];
+        parity = new byte[squares];
+        rank = new byte[squares];
+        reset();
+    }
+
+    /**
+     * Forgets everything known.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            parity[i] = 0;
+            rank[i] = 0;
+        }
+    }
+
+    /**
+     * Returns the representative of the set holding square x,
+     * and remembers whether x is the same colour as it.
+     */
+    private int find(int x)
+    {
+        int root = x;
+        int toRoot = 0;
+        while (parent[root] != root) {
+            toRoot ^= parity[root];
+            root = parent[root];
+        }
+
+        // point everything on the way straight at the root
+        int node = x;
+        int nodeParity = toRoot;
+        while (node != root && parent[node] != root) {
+            int next = parent[node];
+            int nextParity = nodeParity ^ parity[node];
+            parent[node] = root;
+            parity[node] = (byte) nodeParity;
+            node = next;
+            nodeParity = nextParity;
+        }
+
+        foundParity = toRoot;
+        return root;
+    }
+
+    /**
+     * Returns whether squares a and b are the SAME colour, DIFFERENT colours, or UNKNOWN.
+     */
+    public int relation(int a, int b)
+    {
+        int rootA = find(a);
+        int parityA = foundParity;
+        int rootB = find(b);
+        if (rootA != rootB) return UNKNOWN;
+        return parityA ^ foundParity;
+    }
+
+    /**
+     * Returns the representative of the set holding square x.
+     * Squares with the same representative have known colours relative to each other.
+     */
+    public int representative(int x)
+    {
+        return find(x);
+    }
+
+    /**
+     * Returns SAME if square x is the same colour as its representative, and DIFFERENT otherwise.
+     */
+    public int parityToRepresentative(int x)
+    {
+        find(x);
+        return foundParity;
+    }
+
+    /**
+     * Records that squares a and b are different colours, or the same colour.
+     * Returns false if that contradicts what is already known.
+     */
+    public boolean union(int a, int b, boolean different)
+    {
+        int rootA = find(a);
+        int parityA = foundParity;
+        int rootB = find(b);
+        int parityB = foundParity;
+        int relation = different ? DIFFERENT : SAME;
+
+        if (rootA == rootB) return (parityA ^ parityB) == relation;
+
+        // the smaller tree goes under the bigger one
+        if (rank[rootA] < rank[rootB]) {
+            int root = rootA;
+            rootA = rootB;
+            rootB = root;
+        }
+        parent[rootB] = rootA;
+        parity[rootB] = (byte) (parityA ^ parityB ^ relation);
+        if (rank[rootA] == rank[rootB]) rank[rootA]++;
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * ClickReplay replays click traces through SlitherLink, drawing offscreen, and reports how long
+ * the clicks took: updating the game, analysing it and redrawing it, each on its own and in total,
+ * as the 50th and 99th percentiles and the slowest click. It runs headless, so it can be part of
+ * a nightly performance job.
+ *
+ * Usage: java ClickReplay [-sizes 10,50,200] [-clicks 2000] [trace file]...
+ * replays the given traces (see ClickTrace), or if there are none, made-up traces of players
+ * solving boards of the given sizes. Each trace is replayed once beforehand, untimed, to warm up.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+public class ClickReplay
+{
+    public static final String[] PHASE_NAMES = {"update", "analysis", "render", "total"};
+    public static final int TOTAL = 3;
+
+    /**
+     * The times taken by the clicks of one trace.
+     */
+    public static class Report
+    {
+        public final String name;
+        public final int size;
+        public final long[][] nanos;    // for each phase (see PHASE_NAMES), each click's time, sorted
+
+        public Report(String name, int size, long[][] nanos)
+        {
+            this.name = name;
+            this.size = size;
+            this.nanos = nanos;
+            for (long[] phase : nanos) Arrays.sort(phase);
+        }
+
+        /**
+         * Returns the number of clicks timed.
+         */
+        public int clicks()
+        {
+            return nanos[TOTAL].length;
+        }
+
+        /**
+         * Returns the time, in nanoseconds, that fraction of the clicks took no longer than in phase.
+         */
+        public long percentile(int phase, double fraction)
+        {
+            return ClickReplay.percentile(nanos[phase], fraction);
+        }
+
+        /**
+         * Returns the time of the slowest click in phase, in nanoseconds.
+         */
+        public long max(int phase)
+        {
+            long[] times = nanos[phase];
+            return times.length == 0 ? 0 : times[times.length - 1];
+        }
+
+        /**
+         * Returns a line for each phase: the 50th and 99th percentiles and the slowest click, in microseconds.
+         */
+        public String toString()
+        {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%s (%dx%d), %d clicks%n", name, size, size, clicks()));
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+                report.append(String.format("  %-10s p50 %9.1fus  p99 %9.1fus  max %9.1fus%n", PHASE_NAMES[phase],
+                                            percentile(phase, 0.5) / 1e3, percentile(phase, 0.99) / 1e3, max(phase) / 1e3));
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Returns the smallest time that at least fraction of sorted, which is in ascending order, are no more than.
+     */
+    public static long percentile(long[] sorted, double fraction)
+    {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    /**
+     * Replays trace on a new offscreen display of a new game of its puzzle, and returns how long each click took.
+     * If warmUp, the trace is replayed once beforehand on another game, untimed.
+     */
+    public static Report replay(String name, ClickTrace trace, boolean warmUp)
+    {
+        if (warmUp) play(trace, new SlitherLink(new Puzzle(trace.getDefinition()), true), null);
+
+        long[][] nanos = new long[PHASE_NAMES.length][trace.count()];
+        play(trace, new SlitherLink(new Puzzle(trace.getDefinition()), true), nanos);
+        return new Report(name, trace.getDefinition().size(), nanos);
+    }
+
+    /**
+     * Makes every click of trace on display, keeping the time of each phase of click i in nanos[phase][i], unless nanos is null.
+     */
+    private static void play(ClickTrace trace, SlitherLink display, long[][] nanos)
+    {
+        for (int i = 0; i < trace.count(); i++) {
+            trace.replay(display, i);
+            if (nanos == null) continue;
+            long[] phases = display.getClickNanos();
+            for (int phase = 0; phase < phases.length; phase++) {
+                nanos[phase][i] = phases[phase];
+                nanos[TOTAL][i] += phases[phase];
+            }
+        }
+    }
+
+    /**
+     * Replays the traces given, or made-up ones, and prints a report of each.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        // no window is ever opened
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+
+        int[] sizes = {10, 50, 200};
+        int clicks = 2000;
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-sizes") && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].equals("-clicks") && i + 1 < args.length) {
+                clicks = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+
+        if (paths.isEmpty()) {
+            for (int size : sizes) System.out.println(replay("synthetic", ClickTrace.synthetic(size, clicks, size), true));
+        } else {
+            for (Path path : paths) System.out.println(replay(path.getFileName().toString(), ClickTrace.load(path), true));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.file.*;
+
+/**
+ * This class provides unit test cases for the ClickReplay and ClickTrace classes.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class ClickReplayTest
+{
+    private ClickTrace trace;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        trace = ClickTrace.synthetic(8, 1000, 3);
+    }
+
+    @Test
+    public void testsynthetic()
+    {
+        // playing the whole trace, mistakes and all, draws the loop
+        SlitherLink display = new SlitherLink(new Puzzle(trace.getDefinition()), true);
+        assertTrue(display.getCanvas().isOffscreen());
+        for (int i = 0; i < trace.count(); i++) trace.replay(display, i);
+        assertEquals("Finished", AnalyzeSolution.finished(display.getGame()));
+
+        // and it can be cut short
+        assertEquals(10, ClickTrace.synthetic(8, 10, 3).count());
+    }
+
+    @Test
+    public void testreplay()
+    {
+        ClickReplay.Report report = ClickReplay.replay("test", trace, true);
+        assertEquals(8, report.size);
+        assertEquals(trace.count(), report.clicks());
+        for (int phase = 0; phase < ClickReplay.PHASE_NAMES.length; phase++) {
+            assertTrue(report.percentile(phase, 0.5) <= report.percentile(phase, 0.99));
+            assertTrue(report.percentile(phase, 0.99) <= report.max(phase));
+        }
+        assertTrue(report.max(SlitherLink.RENDER) > 0);
+        assertTrue(report.max(ClickReplay.TOTAL) >= report.max(SlitherLink.RENDER));
+        assertTrue(report.toString().contains("render"));
+    }
+
+    @Test
+    public void testpercentile()
+    {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertEquals(5, ClickReplay.percentile(sorted, 0.5));
+        assertEquals(10, ClickReplay.percentile(sorted, 0.99));
+        assertEquals(1, ClickReplay.percentile(sorted, 0.0));
+        assertEquals(0, ClickReplay.percentile(new long[0], 0.5));
+    }
+
+    @Test
+    public void testrecord() throws Exception
+    {
+        // clicks made on a display are recorded, and survive a save
+        SlitherLink display = new SlitherLink(new Puzzle("eg5_1.txt"), true);
+        ClickTrace recorded = new ClickTrace(display.getGame().getDefinition());
+        display.setRecorder(recorded);
+        display.horizontalClick(0, 1);
+        display.verticalClick(2, 5);
+        display.setRecorder(null);
+        display.horizontalClick(0, 1);
+        assertEquals(2, recorded.count());
+
+        Path path = Files.createTempFile("trace", ".txt");
+        try {
+            recorded.save(path);
+            ClickTrace loaded = ClickTrace.load(path);
+            assertTrue(loaded.getDefinition() == recorded.getDefinition());
+            assertEquals(2, loaded.count());
+            assertTrue(loaded.isVertical(1));
+            assertEquals(2, loaded.getRow(1));
+            assertEquals(5, loaded.getColumn(1));
+            assertFalse(loaded.isVertical(0));
+
+            Files.write(path, "puzzle 2\n-1 -1\n".getBytes());
+            try {
+                ClickTrace.load(path);
+                fail("rows are missing");
+            } catch (java.io.IOException e) {
+                assertTrue(e.getMessage().startsWith("Trace"));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * ClickTrace is a list of clicks on the segments of one Slither Link puzzle, which can be
+ * recorded from a game (see SlitherLink.setRecorder), made up, saved, and replayed.
+ *
+ * A trace file holds the line "puzzle N", the N rows of numbers in the format of eg5_1.txt,
+ * then one click per line: "h r c" for the horizontal segment to the right of Dot r,c,
+ * or "v r c" for the vertical segment below it. Blank lines and lines starting with # are ignored.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class ClickTrace
+{
+    private final PuzzleDefinition definition;
+    private int[] clicks = new int[3 * 64];     // for each click: 1 if vertical, 0 if horizontal, then r and c
+    private int count;
+
+    /**
+     * Creates an empty trace for the puzzle definition.
+     */
+    public ClickTrace(PuzzleDefinition definition)
+    {
+        this.definition = definition;
+    }
+
+    /**
+     * Returns the puzzle the clicks are on.
+     */
+    public PuzzleDefinition getDefinition()
+    {
+        return definition;
+    }
+
+    /**
+     * Returns the number of clicks.
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * Adds a click on the vertical segment below Dot r,c if verticalLine, or else the horizontal one to its right.
+     */
+    public void add(boolean verticalLine, int r, int c)
+    {
+        if (3 * count == clicks.length) clicks = Arrays.copyOf(clicks, 2 * clicks.length);
+        clicks[3 * count] = verticalLine ? 1 : 0;
+        clicks[3 * count + 1] = r;
+        clicks[3 * count + 2] = c;
+        count++;
+    }
+
+    /**
+     * Returns whether click i is on a vertical segment.
+     */
+    public boolean isVertical(int i)
+    {
+        return clicks[3 * i] == 1;
+    }
+
+    /**
+     * Returns the row of the dot click i is next to.
+     */
+    public int getRow(int i)
+    {
+        return clicks[3 * i + 1];
+    }
+
+    /**
+     * Returns the column of the dot click i is next to.
+     */
+    public int getColumn(int i)
+    {
+        return clicks[3 * i + 2];
+    }
+
+    /**
+     * Makes click i on display.
+     */
+    public void replay(SlitherLink display, int i)
+    {
+        if (isVertical(i)) display.verticalClick(getRow(i), getColumn(i));
+        else display.horizontalClick(getRow(i), getColumn(i));
+    }
+
+    /**
+     * Returns a made-up trace of a player solving a size x size puzzle: the segments of a random loop
+     * are drawn row by row, with now and then a wrong segment that is taken away again a few clicks later.
+     * The trace stops after maxClicks clicks, or once the loop is drawn.
+     */
+    public static ClickTrace synthetic(int size, int maxClicks, long seed)
+    {
+        LoopGenerator generator = new LoopGenerator(size, seed);
+        ClickTrace trace = new ClickTrace(PuzzleDefinition.intern(generator.getClues(0.5, seed)));
+        boolean[][] horizontal = generator.getHorizontal();
+        boolean[][] vertical = generator.getVertical();
+        Random random = new Random(seed);
+
+        int[] mistake = null;       // a wrong click waiting to be undone, and when
+        for (int r = 0; r <= size && trace.count < maxClicks; r++) {
+            for (int c = 0; c <= size && trace.count < maxClicks; c++) {
+                if (c < size && horizontal[r][c]) trace.add(false, r, c);
+                if (r < size && vertical[r][c] && trace.count < maxClicks) trace.add(true, r, c);
+
+                if (mistake != null && trace.count >= mistake[3] && trace.count < maxClicks) {
+                    trace.add(mistake[0] == 1, mistake[1], mistake[2]);
+                    mistake = null;
+                } else if (mistake == null && random.nextInt(10) == 0 && trace.count < maxClicks) {
+                    boolean wrongVertical = random.nextBoolean();
+                    int wr = random.nextInt(wrongVertical ? size : size + 1);
+                    int wc = random.nextInt(wrongVertical ? size + 1 : size);
+                    if ((wrongVertical ? vertical[wr][wc] : horizontal[wr][wc])) continue;
+                    trace.add(wrongVertical, wr, wc);
+                    mistake = new int[] {wrongVertical ? 1 : 0, wr, wc, trace.count + 1 + random.nextInt(3)};
+                }
+            }
+        }
+        if (mistake != null && trace.count < maxClicks) trace.add(mistake[0] == 1, mistake[1], mistake[2]);
+        return trace;
+    }
+
+    /**
+     * Reads a trace from the file at path.
+     * Throws IOException if it can't be read, or isn't a trace.
+     */
+    public static ClickTrace load(Path path) throws IOException
+    {
+        Iterator<String> lines = Files.readAllLines(path).stream()
+                                      .map(String::trim)
+                                      .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                                      .iterator();
+        try {
+            String[] header = lines.hasNext() ? lines.next().split("\\s+") : new String[0];
+            if (header.length != 2 || !header[0].equals("puzzle")) throw new IOException("Not a click trace");
+            int size = Integer.parseInt(header[1]);
+
+            ArrayList<String> rows = new ArrayList<>();
+            for (int r = 0; r < size; r++) {
+                if (!lines.hasNext()) throw new IOException("Trace is missing rows of its puzzle");
+                rows.add(lines.next());
+            }
+            ClickTrace trace = new ClickTrace(PuzzleDefinition.parse(rows));
+
+            while (lines.hasNext()) {
+                String[] click = lines.next().split("\\s+");
+                if (click.length != 3 || !(click[0].equals("h") || click[0].equals("v"))) throw new IOException("Trace has an invalid click");
+                trace.add(click[0].equals("v"), Integer.parseInt(click[1]), Integer.parseInt(click[2]));
+            }
+            return trace;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Trace has an invalid number", e);
+        }
+    }
+
+    /**
+     * Writes the trace to the file at path.
+     */
+    public void save(Path path) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("puzzle " + definition.size() + "\n");
+            LoopGenerator.write(definition.getPuzzle(), out);
+            for (int i = 0; i < count; i++) {
+                out.write((isVertical(i) ? "v " : "h ") + getRow(i) + " " + getColumn(i) + "\n");
+            }
+        }
+    }
+}
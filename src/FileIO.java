@@ -12,6 +12,7 @@
  */
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.ArrayList;
 
 class FileIO 
@@ -39,6 +40,18 @@ class FileIO
        catch (Exception e) {System.err.println("File input error reading " + filename);}
    }
    
+   /**
+    * Creates an object representing a file on disk (rather than on the classpath) and its contents.
+    */
+   public FileIO (Path path) 
+   {
+       this.filename = path.toString();
+       try {
+            lines = new ArrayList<>(Files.readAllLines(path));
+           } 
+       catch (Exception e) {System.err.println("File input error reading " + filename);}
+   }
+   
    /**
     * Returns the name of the file requested.
     */
@@ -0,0 +1,192 @@
+/**
+ * Grader sorts Slither Link puzzles into difficulty tiers by solving them
+ * with the cheapest deductions first (see Solver), and reports on a whole corpus.
+ * Boards are graded in parallel, one per available processor.
+ *
+ * Usage: java Grader [file or directory]...
+ * Directories are searched for eg*.txt files; the default is the current directory.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class Grader
+{
+    /**
+     * The grade of one puzzle.
+     */
+    public static class Grade
+    {
+        public final String name;
+        public final int size;
+        public final boolean solved;
+        public final int hardestTier;   // -1 if the puzzle couldn't be read
+        public final int[] steps;       // edges decided at each tier
+        public final long searchNodes;
+        public final long nanos;
+
+        public Grade(String name, int size, boolean solved, int hardestTier, int[] steps, long searchNodes, long nanos)
+        {
+            this.name = name;
+            this.size = size;
+            this.solved = solved;
+            this.hardestTier = hardestTier;
+            this.steps = steps;
+            this.searchNodes = searchNodes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the grade as one line of the report.
+         */
+        public String toString()
+        {
+            if (hardestTier < 0) return name + "  unreadable";
+
+            StringBuilder line = new StringBuilder();
+            line.append(name).append("  ").append(size).append("x").append(size);
+            line.append("  ").append(solved ? Solver.TIER_NAMES[hardestTier] : "unsolvable");
+            for (int t = 0; t < steps.length; t++) line.append("  ").append(Solver.TIER_NAMES[t]).append("=").append(steps[t]);
+            line.append("  nodes=").append(searchNodes);
+            line.append(String.format("  %.2fms", nanos / 1e6));
+            return line.toString();
+        }
+    }
+
+    /**
+     * We don't need to create any objects of class Grader; all of its methods are static.
+     */
+    private Grader() {}
+
+    /**
+     * Grades the puzzle p, called name in the report.
+     */
+    public static Grade grade(String name, Puzzle p)
+    {
+        long start = System.nanoTime();
+        Solver solver = new Solver(p);
+        boolean solved = solver.solve();
+        return new Grade(name, p.size(), solved, solver.getHardestTier(), solver.getSteps(), solver.getSearchNodes(), System.nanoTime() - start);
+    }
+
+    /**
+     * Grades the puzzle stored in the file at path.
+     */
+    public static Grade grade(Path path)
+    {
+        ArrayList<String> lines = new FileIO(path).getLines();
+        try {
+            return grade(path.getFileName().toString(), new Puzzle(lines));
+        } catch (RuntimeException e) {
+            return new Grade(path.getFileName().toString(), 0, false, -1, new int[Solver.TIER_NAMES.length], 0, 0);
+        }
+    }
+
+    /**
+     * Grades every file in paths, using threads threads.
+     * The grades are returned in the same order as paths.
+     */
+    public static List<Grade> gradeAll(List<Path> paths, int threads) throws InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Grade>> futures = new ArrayList<>();
+            for (Path path : paths) futures.add(pool.submit(() -> grade(path)));
+
+            List<Grade> grades = new ArrayList<>();
+            for (Future<Grade> future : futures) {
+                try {
+                    grades.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return grades;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the puzzle files named by args: files as given, and eg*.txt inside directories.
+     */
+    public static List<Path> corpus(String[] args) throws IOException
+    {
+        if (args.length == 0) args = new String[] {"."};
+
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "eg*.txt")) {
+                    List<Path> found = new ArrayList<>();
+                    for (Path file : files) found.add(file);
+                    Collections.sort(found);
+                    paths.addAll(found);
+                }
+            } else {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns a summary of grades: how many puzzles needed each tier, and the average work done.
+     */
+    public static String summary(List<Grade> grades, long elapsedNanos)
+    {
+        int tiers = Solver.TIER_NAMES.length;
+        int[] boards = new int[tiers];
+        long[] steps = new long[tiers];
+        int unsolvable = 0;
+        int unreadable = 0;
+        long nodes = 0;
+
+        for (Grade grade : grades) {
+            if (grade.hardestTier < 0) {
+                unreadable++;
+                continue;
+            }
+            if (grade.solved) boards[grade.hardestTier]++;
+            else unsolvable++;
+            for (int t = 0; t < tiers; t++) steps[t] += grade.steps[t];
+            nodes += grade.searchNodes;
+        }
+
+        int graded = grades.size() - unreadable;
+        StringBuilder summary = new StringBuilder();
+        summary.append(grades.size()).append(" puzzles\n");
+        for (int t = 0; t < tiers; t++) {
+            summary.append(String.format("  %-10s %8d boards  %10.1f avg steps%n", Solver.TIER_NAMES[t], boards[t], graded == 0 ? 0.0 : (double) steps[t] / graded));
+        }
+        summary.append(String.format("  %-10s %8d boards%n", "unsolvable", unsolvable));
+        if (unreadable > 0) summary.append(String.format("  %-10s %8d files%n", "unreadable", unreadable));
+        summary.append(String.format("  %.1f avg search nodes%n", graded == 0 ? 0.0 : (double) nodes / graded));
+
+        double seconds = elapsedNanos / 1e9;
+        summary.append(String.format("  %.2fs, %.0f boards/minute", seconds, seconds == 0 ? 0.0 : grades.size() * 60 / seconds));
+        return summary.toString();
+    }
+
+    /**
+     * Grades a corpus and prints a line per puzzle, then the summary.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        List<Path> paths = corpus(args);
+
+        long start = System.nanoTime();
+        List<Grade> grades = gradeAll(paths, Runtime.getRuntime().availableProcessors());
+        long elapsed = System.nanoTime() - start;
+
+        for (Grade grade : grades) System.out.println(grade);
+        System.out.println();
+        System.out.println(summary(grades, elapsed));
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * LoopGenerator makes a random valid Slither Link loop, and the numbers that go with it,
+ * for boards of any size (1000x1000 takes well under a second).
+ *
+ * It grows a random region of squares (the inside of the loop) from one square,
+ * only adding a square when that keeps the region in one piece without holes and
+ * without two squares touching only at a corner. Then the boundary of the region is a
+ * single loop that never touches itself. Each square is checked by looking at its 8
+ * neighbours only, so the whole board takes time proportional to its area.
+ * The same size and seed always give the same loop.
+ *
+ * Usage: java LoopGenerator size seed [fraction of numbers to keep] [output file]
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Random;
+
+public class LoopGenerator
+{
+    // the 8 neighbours of a square in clockwise order, starting above it
+    private static final int[] AROUND_R = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int[] AROUND_C = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final int size;
+    private final boolean[][] inside;
+
+    /**
+     * Generates a loop on a board of the given size, enclosing about half of the squares.
+     */
+    public LoopGenerator(int size, long seed)
+    {
+        this(size, seed, 0.5);
+    }
+
+    /**
+     * Generates a loop on a board of the given size, enclosing about the given fraction of the squares.
+     */
+    public LoopGenerator(int size, long seed, double fill)
+    {
+        this.size = size;
+        inside = new boolean[size][size];
+        // at least two squares, since a loop round one square would need a 4
+        grow(new Random(seed), Math.max(2, (int) (fill * size * size)));
+    }
+
+    /**
+     * Grows the inside region from a random square until it has target squares,
+     * or no square can be added.
+     */
+    private void grow(Random random, int target)
+    {
+        // squares next to the region; a square may be listed more than once
+        int[] frontier = new int[4 * size * size + 1];
+        int frontierSize = 0;
+
+        int start = random.nextInt(size * size);
+        inside[start / size][start % size] = true;
+        int count = 1;
+        frontierSize = addNeighbours(frontier, frontierSize, start);
+
+        while (count < target && frontierSize > 0) {
+            // take a random square off the frontier
+            int i = random.nextInt(frontierSize);
+            int square = frontier[i];
+            frontier[i] = frontier[--frontierSize];
+
+            int r = square / size;
+            int c = square % size;
+            if (inside[r][c] || !canAdd(r, c)) continue;
+
+            inside[r][c] = true;
+            count++;
+            frontierSize = addNeighbours(frontier, frontierSize, square);
+        }
+    }
+
+    /**
+     * Adds the outside squares next to square to the frontier, returning its new size.
+     */
+    private int addNeighbours(int[] frontier, int frontierSize, int square)
+    {
+        int r = square / size;
+        int c = square % size;
+        for (int i = 0; i < 8; i += 2) {
+            int nr = r + AROUND_R[i];
+            int nc = c + AROUND_C[i];
+            if (nr >= 0 && nr < size && nc >= 0 && nc < size && !inside[nr][nc]) frontier[frontierSize++] = nr * size + nc;
+        }
+        return frontierSize;
+    }
+
+    /**
+     * Returns whether adding Square r,c keeps the region a single piece with no holes,
+     * and with no squares touching only at a corner: its neighbours inside the region must
+     * form a single run around it, which includes a side neighbour and isn't just one corner.
+     */
+    private boolean canAdd(int r, int c)
+    {
+        int changes = 0;
+        int runStart = -1;
+        boolean previous = isInside(r + AROUND_R[7], c + AROUND_C[7]);
+        for (int i = 0; i < 8; i++) {
+            boolean current = isInside(r + AROUND_R[i], c + AROUND_C[i]);
+            if (current != previous) {
+                changes++;
+                if (current) runStart = i;
+            }
+            previous = current;
+        }
+        if (changes != 2) return false;
+
+        // a run of two or more always includes a side neighbour
+        int next = (runStart + 1) % 8;
+        return runStart % 2 == 0 || isInside(r + AROUND_R[next], c + AROUND_C[next]);
+    }
+
+    /**
+     * Returns whether Square r,c is inside the region; squares off the board are outside.
+     */
+    private boolean isInside(int r, int c)
+    {
+        return r >= 0 && r < size && c >= 0 && c < size && inside[r][c];
+    }
+
+    /**
+     * Returns which squares are inside the loop.
+     */
+    public boolean[][] getInside()
+    {
+        return inside;
+    }
+
+    /**
+     * Returns the number of lines around every square.
+     */
+    public int[][] getClues()
+    {
+        int[][] clues = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int lines = 0;
+                for (int i = 0; i < 8; i += 2)
+                    if (isInside(r + AROUND_R[i], c + AROUND_C[i]) != inside[r][c]) lines++;
+                clues[r][c] = lines;
+            }
+        }
+        return clues;
+    }
+
+    /**
+     * Returns the loop horizontally, in the same form as Puzzle.getHorizontal().
+     */
+    public boolean[][] getHorizontal()
+    {
+        boolean[][] horizontal = new boolean[size + 1][size];
+        for (int r = 0; r <= size; r++)
+            for (int c = 0; c < size; c++)
+                horizontal[r][c] = isInside(r - 1, c) != isInside(r, c);
+        return horizontal;
+    }
+
+    /**
+     * Returns the loop vertically, in the same form as Puzzle.getVertical().
+     */
+    public boolean[][] getVertical()
+    {
+        boolean[][] vertical = new boolean[size][size + 1];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c <= size; c++)
+                vertical[r][c] = isInside(r, c - 1) != isInside(r, c);
+        return vertical;
+    }
+
+    /**
+     * Returns the numbers with each one kept with probability keep, and the rest made empty (-1).
+     */
+    public int[][] getClues(double keep, long seed)
+    {
+        Random random = new Random(seed);
+        int[][] clues = getClues();
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                if (random.nextDouble() >= keep) clues[r][c] = -1;
+        return clues;
+    }
+
+    /**
+     * Returns a game with every number, and the loop already drawn.
+     */
+    public Puzzle toPuzzle()
+    {
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(getClues()));
+        SolutionState state = p.getState();
+        boolean[][] horizontal = getHorizontal();
+        boolean[][] vertical = getVertical();
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (c < size && horizontal[r][c]) state.setHorizontal(r, c, true);
+                if (r < size && vertical[r][c]) state.setVertical(r, c, true);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Writes clues in the format of eg5_1.txt etc.
+     */
+    public static void write(int[][] clues, Writer out) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        for (int[] row : clues) {
+            line.setLength(0);
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) line.append(' ');
+                line.append(row[c]);
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    /**
+     * Writes a generated puzzle to a file, or to the console.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: java LoopGenerator size seed [fraction of numbers to keep] [output file]");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        long seed = Long.parseLong(args[1]);
+        double keep = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+
+        int[][] clues = new LoopGenerator(size, seed).getClues(keep, seed);
+        if (args.length > 3) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)) {
+                write(clues, out);
+            }
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            write(clues, out);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides unit test cases for the LoopGenerator class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class LoopGeneratorTest
+{
+    private LoopGenerator generator;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        generator = new LoopGenerator(40, 7);
+    }
+
+    @Test
+    public void testtoPuzzle()
+    {
+        Puzzle p = generator.toPuzzle();
+        assertEquals(40, p.size());
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+    }
+
+    @Test
+    public void testseed()
+    {
+        assertArrayEquals(generator.getClues(), new LoopGenerator(40, 7).getClues());
+        assertFalse(java.util.Arrays.deepEquals(generator.getClues(), new LoopGenerator(40, 8).getClues()));
+    }
+
+    @Test
+    public void testinside()
+    {
+        // about half the squares are inside, and the clues agree with the loop
+        int inside = 0;
+        for (boolean[] row : generator.getInside())
+            for (boolean square : row)
+                if (square) inside++;
+        assertTrue(inside > 600 && inside <= 800);
+
+        int[][] clues = generator.getClues();
+        boolean[][] horizontal = generator.getHorizontal();
+        boolean[][] vertical = generator.getVertical();
+        for (int r = 0; r < 40; r++) {
+            for (int c = 0; c < 40; c++) {
+                int lines = 0;
+                if (horizontal[r][c]) lines++;
+                if (horizontal[r + 1][c]) lines++;
+                if (vertical[r][c]) lines++;
+                if (vertical[r][c + 1]) lines++;
+                assertEquals(clues[r][c], lines);
+            }
+        }
+    }
+
+    @Test
+    public void testsolvable()
+    {
+        for (long seed = 1; seed <= 5; seed++) {
+            LoopGenerator g = new LoopGenerator(12, seed);
+            Puzzle p = new Puzzle(PuzzleDefinition.intern(g.getClues(0.6, seed)));
+            Solver solver = new Solver(p);
+            assertTrue(solver.solve());
+            solver.applyTo(p);
+            assertEquals("Finished", AnalyzeSolution.finished(p));
+        }
+    }
+
+    @Test
+    public void testhuge()
+    {
+        Puzzle p = new LoopGenerator(1000, 1).toPuzzle();
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+    }
+}
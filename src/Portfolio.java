@@ -0,0 +1,158 @@
+/**
+ * Portfolio solves a Slither Link puzzle with several Solver configurations at once,
+ * takes the first result that holds up, and cancels the rest.
+ * Different configurations are fastest on different boards, and it can't be told in
+ * advance which one will be, so racing them cuts the time taken on the hardest boards.
+ *
+ * A solution only wins once AnalyzeSolution.finished accepts it. A proof that the puzzle
+ * has no solution wins straight away, since every configuration only makes sound deductions.
+ * If every configuration runs out of time, the result with the most edges decided is returned.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Portfolio
+{
+    /**
+     * One way of configuring the solver.
+     */
+    public static class Config
+    {
+        public final String name;
+        public final int heuristic;     // Solver.DANGLING or Solver.CONSTRAINED
+        public final long seed;         // 0 to guess in a fixed order
+        public final boolean colour;    // whether COLOUR is used
+        public final boolean trial;     // whether TRIAL is used
+
+        public Config(String name, int heuristic, long seed, boolean colour, boolean trial)
+        {
+            this.name = name;
+            this.heuristic = heuristic;
+            this.seed = seed;
+            this.colour = colour;
+            this.trial = trial;
+        }
+
+        /**
+         * Sets solver up with this configuration.
+         */
+        public void configure(Solver solver)
+        {
+            solver.setHeuristic(heuristic);
+            if (seed != 0) solver.setSeed(seed);
+            solver.setTiers(colour, trial);
+        }
+    }
+
+    /**
+     * The result of a portfolio solve, and the configuration that produced it.
+     */
+    public static class Outcome
+    {
+        public final String winner;
+        public final Solver.Result result;
+
+        public Outcome(String winner, Solver.Result result)
+        {
+            this.winner = winner;
+            this.result = result;
+        }
+    }
+
+    private final List<Config> configs;
+    private final Executor executor;
+
+    /**
+     * Creates a portfolio of the given configurations, run on executor.
+     */
+    public Portfolio(List<Config> configs, Executor executor)
+    {
+        this.configs = new ArrayList<>(configs);
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the usual mix: the standard solver, the other heuristic,
+     * a fast-guessing solver without COLOUR or TRIAL, and a few random seeds.
+     */
+    public static List<Config> standardConfigs()
+    {
+        List<Config> configs = new ArrayList<>();
+        configs.add(new Config("standard", Solver.DANGLING, 0, true, true));
+        configs.add(new Config("constrained", Solver.CONSTRAINED, 0, true, true));
+        configs.add(new Config("basic", Solver.DANGLING, 0, false, false));
+        configs.add(new Config("random-1", Solver.DANGLING, 1, true, false));
+        configs.add(new Config("random-2", Solver.CONSTRAINED, 2, true, false));
+        configs.add(new Config("random-3", Solver.DANGLING, 3, false, true));
+        return configs;
+    }
+
+    /**
+     * Solves p with every configuration at once, each stopping once budgetMillis have passed.
+     * Cancelling the future cancels every configuration still running.
+     */
+    public CompletableFuture<Outcome> solve(Puzzle p, long budgetMillis)
+    {
+        CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+        List<CompletableFuture<Solver.Result>> runs = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger(configs.size());   // only reaches 0 if no run wins
+        Outcome[] best = new Outcome[1];     // the best unfinished result so far
+
+        for (Config config : configs) {
+            if (outcome.isDone()) break;
+            CompletableFuture<Solver.Result> run = Solver.solveAsync(p, budgetMillis, executor, config::configure);
+            runs.add(run);
+            run.whenComplete((result, failure) -> {
+                if (result != null && (result.status == Solver.Result.UNSOLVABLE
+                                       || result.status == Solver.Result.SOLVED && verified(p, result))) {
+                    outcome.complete(new Outcome(config.name, result));
+                } else if (result != null && result.status == Solver.Result.UNSOLVED) {
+                    synchronized (best) {
+                        if (best[0] == null || decided(result) > decided(best[0].result)) best[0] = new Outcome(config.name, result);
+                    }
+                }
+
+                if (running.decrementAndGet() == 0) {
+                    synchronized (best) {
+                        if (best[0] != null) outcome.complete(best[0]);
+                        else outcome.completeExceptionally(failure != null ? failure : new IllegalStateException("no configuration finished"));
+                    }
+                }
+            });
+        }
+
+        // once there is a winner (or the caller gives up), stop the others
+        outcome.whenComplete((result, failure) -> {
+            for (CompletableFuture<Solver.Result> run : runs) run.cancel(true);
+        });
+        return outcome;
+    }
+
+    /**
+     * Returns whether result is a finished solution of p.
+     */
+    private static boolean verified(Puzzle p, Solver.Result result)
+    {
+        Puzzle copy = new Puzzle(p.getDefinition());
+        result.applyTo(copy);
+        return AnalyzeSolution.finished(copy).equals("Finished");
+    }
+
+    /**
+     * Returns the number of segments result decided.
+     */
+    private static int decided(Solver.Result result)
+    {
+        int decided = 0;
+        for (byte[][] segments : new byte[][][] {result.horizontal, result.vertical})
+            for (byte[] row : segments)
+                for (byte segment : row)
+                    if (segment != Solver.UNKNOWN) decided++;
+        return decided;
+    }
+}
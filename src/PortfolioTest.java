@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * This class provides unit test cases for the Portfolio class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class PortfolioTest
+{
+    private ExecutorService executor;
+    private Portfolio portfolio;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        executor = Executors.newFixedThreadPool(4);
+        portfolio = new Portfolio(Portfolio.standardConfigs(), executor);
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testsolve() throws Exception
+    {
+        for (String board : new String[] {"eg5_1.txt", "eg7_2.txt", "eg10_1.txt"}) {
+            Puzzle p = new Puzzle(board);
+            Portfolio.Outcome outcome = portfolio.solve(p, 10000).get();
+            assertEquals(board, Solver.Result.SOLVED, outcome.result.status);
+            assertNotNull(outcome.winner);
+            outcome.result.applyTo(p);
+            assertEquals(board, "Finished", AnalyzeSolution.finished(p));
+        }
+
+        for (long seed = 1; seed <= 6; seed++) {
+            Puzzle p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(20, seed).getClues(0.5, seed)));
+            Portfolio.Outcome outcome = portfolio.solve(p, 10000).get();
+            assertEquals(Solver.Result.SOLVED, outcome.result.status);
+            outcome.result.applyTo(p);
+            assertEquals("Finished", AnalyzeSolution.finished(p));
+        }
+    }
+
+    @Test
+    public void testunsolvable() throws Exception
+    {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("3 3");
+        lines.add("3 3");
+        assertEquals(Solver.Result.UNSOLVABLE, portfolio.solve(new Puzzle(lines), 10000).get().result.status);
+    }
+
+    @Test
+    public void testconfigs() throws Exception
+    {
+        // every configuration solves a board on its own
+        Puzzle p = new Puzzle("eg7_1.txt");
+        for (Portfolio.Config config : Portfolio.standardConfigs()) {
+            ArrayList<Portfolio.Config> one = new ArrayList<>();
+            one.add(config);
+            Portfolio.Outcome outcome = new Portfolio(one, executor).solve(p, 10000).get();
+            assertEquals(config.name, outcome.winner);
+            assertEquals(config.name, Solver.Result.SOLVED, outcome.result.status);
+        }
+    }
+
+    @Test
+    public void testbudget() throws Exception
+    {
+        // a board none of them can finish in time gives the most progress made
+        Puzzle hard = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(60, 1).getClues(0.3, 1)));
+        long start = System.nanoTime();
+        Portfolio.Outcome outcome = portfolio.solve(hard, 200).get(10, TimeUnit.SECONDS);
+        assertEquals(Solver.Result.UNSOLVED, outcome.result.status);
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+}
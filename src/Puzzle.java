@@ -1,5 +1,8 @@
 /**
  * Puzzle maintains the internal representation of a square Slither Link puzzle.
+ * The numbers and grid come from a PuzzleDefinition shared by every game of the same board,
+ * and the current solution is held in this game's own SolutionState, where each segment
+ * is ON, OFF or UNKNOWN. The lines and the usable grid lines are views of that state.
  *
  * @author Abdihafith Isse
  * @version 1.0
@@ -9,18 +12,9 @@ import java.util.ArrayList;
 
 public class Puzzle
 {
-    private int[][] puzzle;         	// the numbers in the squares, i.e. the puzzle definition
-                                    	// -1 if the square is empty, 0-3 otherwise
-                                    
-    private boolean[][] gridHorizontal; // the horizontal line segments of the grid
-                                    	// true if the segment is on, false otherwise
-    private boolean[][] gridVertical;   // the vertical line segments of the grid
-                                    	// true if the segment is on, false otherwise                           
-                                    
-    private boolean[][] horizontal; 	// the horizontal line segments in the current solution
-                                    	// true if the segment is on, false otherwise
-    private boolean[][] vertical;   	// the vertical line segments in the current solution
-                                    	// true if the segment is on, false otherwise
+    private PuzzleDefinition definition;    // the numbers in the squares and the usable grid lines,
+                                            // shared with other games of the same puzzle
+    private SolutionState state;            // the line segments in the current solution
     
     
     /**
@@ -33,6 +27,33 @@ public class Puzzle
         parseFile(file.getLines());
     }
 
+    /**
+     * Creates the puzzle from lines, and an empty solution.
+     * lines is assumed to hold a valid puzzle; see parseFile.
+     */
+    public Puzzle(ArrayList<String> lines)
+    {
+        parseFile(lines);
+    }
+
+    /**
+     * Creates a new game of an existing puzzle, with an empty solution.
+     */
+    public Puzzle(PuzzleDefinition definition)
+    {
+        this.definition = definition;
+        this.state = new SolutionState(definition);
+    }
+
+    /**
+     * Creates a game of an existing puzzle with the solution state, which it owns from now on.
+     */
+    private Puzzle(PuzzleDefinition definition, SolutionState state)
+    {
+        this.definition = definition;
+        this.state = state;
+    }
+
     /**
      * Creates the puzzle from "eg5_1.txt".
      */
@@ -46,7 +67,7 @@ public class Puzzle
      */
     public int size()
     {
-        return puzzle.length;
+        return definition.size();
     }
 
     /**
@@ -54,7 +75,7 @@ public class Puzzle
      */
     public int[][] getPuzzle()
     {
-        return puzzle;
+        return definition.getPuzzle();
     }
 
     /**
@@ -62,7 +83,7 @@ public class Puzzle
      */
     public boolean[][] getHorizontal()
     {
-        return horizontal;
+        return state.getHorizontal();
     }
 
     /**
@@ -70,23 +91,127 @@ public class Puzzle
      */
     public boolean[][] getVertical()
     {
-        return vertical;
+        return state.getVertical();
+    }
+    
+    /**
+     * Returns the state of the current solution horizontally, bit-packed; see SolutionState.
+     */
+    public long[][] getHorizontalBits()
+    {
+        return state.getHorizontalBits();
+    }
+
+    /**
+     * Returns the state of the current solution vertically, bit-packed; see SolutionState.
+     */
+    public long[][] getVerticalBits()
+    {
+        return state.getVerticalBits();
     }
     
     /**
-     * Returns the state of the current grid, horizontally.
+     * Returns the state of the current grid, horizontally: the segments that aren't OFF.
      */
     public boolean[][] getGridHorizontal()
     {
-        return gridHorizontal;
+        return state.getGridHorizontal();
     }
 
     /**
-     * Returns the state of the current grid, vertically.
+     * Returns the state of the current grid, vertically: the segments that aren't OFF.
      */
     public boolean[][] getGridVertical()
     {
-        return gridVertical;
+        return state.getGridVertical();
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN; see SolutionState) of the horizontal line segment
+     * to the right of Dot r,c. The indices are assumed to be legal.
+     */
+    public byte getHorizontalState(int r, int c)
+    {
+        return state.getHorizontalState(r, c);
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN) of the vertical line segment below Dot r,c.
+     * The indices are assumed to be legal.
+     */
+    public byte getVerticalState(int r, int c)
+    {
+        return state.getVerticalState(r, c);
+    }
+
+    /**
+     * Sets the state (ON, OFF or UNKNOWN) of the horizontal line segment to the right of Dot r,c,
+     * if the indices are legal. Otherwise do nothing.
+     */
+    public void setHorizontalState(int r, int c, byte value)
+    {
+        if (r >= 0 && r <= size() && c >= 0 && c < size()) state.setHorizontalState(r, c, value);
+    }
+
+    /**
+     * Sets the state (ON, OFF or UNKNOWN) of the vertical line segment below Dot r,c,
+     * if the indices are legal. Otherwise do nothing.
+     */
+    public void setVerticalState(int r, int c, byte value)
+    {
+        if (r >= 0 && r < size() && c >= 0 && c <= size()) state.setVerticalState(r, c, value);
+    }
+
+    /**
+     * Sets the listener told about each change to the segments of this game, or null for none.
+     * It stays with the game when a snapshot is restored, or a new puzzle is loaded.
+     */
+    public void setListener(SolutionState.EdgeListener listener)
+    {
+        state.setListener(listener);
+    }
+
+    /**
+     * Returns the shared definition of the puzzle.
+     */
+    public PuzzleDefinition getDefinition()
+    {
+        return definition;
+    }
+
+    /**
+     * Returns the current solution.
+     */
+    public SolutionState getState()
+    {
+        return state;
+    }
+
+    /**
+     * Returns a copy of the current solution, in constant time.
+     * Later changes to the game don't affect the copy.
+     */
+    public SolutionState snapshot()
+    {
+        return state.fork();
+    }
+
+    /**
+     * Replaces the current solution with a copy of snapshot, in constant time.
+     * snapshot is assumed to be for a puzzle of the same size, and can be restored again later.
+     */
+    public void restore(SolutionState snapshot)
+    {
+        state.restore(snapshot);
+    }
+
+    /**
+     * Returns a new game of the same puzzle, starting from a copy of the current solution.
+     * Only the rows that either game changes afterwards are copied.
+     */
+    public Puzzle fork()
+    {
+        return new Puzzle(definition, state.fork());
     }
 
     /**
@@ -97,35 +222,10 @@ public class Puzzle
      */
     public void parseFile(ArrayList<String> lines)
     {
-        // numbers
-        puzzle = new int[lines.size()][lines.size()];
-        for (int r = 0; r < lines.size(); r++) {
-            String line = lines.get(r);
-            String[] rowValues = line.split(" ");
-            for (int c = 0; c < lines.size(); c++) {
-                puzzle[r][c] = Integer.parseInt(rowValues[c]);
-            }
-        }
-        
-        // grid
-        gridHorizontal = new boolean[lines.size() + 1][lines.size()];
-        gridVertical = new boolean[lines.size()][lines.size() + 1];
-        
-        gridHorizontal = new boolean[lines.size() + 1][lines.size()];
-        for (int r = 0; r < gridHorizontal.length; r++)
-            for (int c = 0; c < gridHorizontal[r].length; c++)
-                gridHorizontal[r][c] = true;
-        gridVertical = new boolean[lines.size()][lines.size() + 1];
-        for (int r = 0; r < gridVertical.length; r++)
-            for (int c = 0; c < gridVertical[r].length; c++)
-                gridVertical[r][c] = true;
-        
-        disableLinesAroundNumber(puzzle, gridHorizontal, gridVertical, 0);
-        disableDeadEndPaths(gridHorizontal, gridVertical);
-        
-        // lines
-        horizontal = new boolean[lines.size() + 1][lines.size()];
-        vertical = new boolean[lines.size()][lines.size() + 1];
+        SolutionState.EdgeListener listener = state == null ? null : state.getListener();
+        definition = PuzzleDefinition.parse(lines);
+        state = new SolutionState(definition);
+        state.setListener(listener);
     }
 
     /**
@@ -134,9 +234,7 @@ public class Puzzle
      */
     public void verticalClick(int r, int c)
     {
-        if (r >= 0 && r < size() && c >= 0 && c < size() + 1) { // && gridVertical[r][c]
-            vertical[r][c] = !vertical[r][c];
-        }
+        state.toggleVertical(r, c);
     }
 
     /**
@@ -145,66 +243,7 @@ public class Puzzle
      */
     public void horizontalClick(int r, int c)
     {
-        if (r >= 0 && r < size() + 1 && c >= 0 && c < size()) { // && gridHorizontal[r][c]
-            horizontal[r][c] = !horizontal[r][c];
-        }
-    }
-    
-    /**
-     * Disables the grid lines around a certain number.
-     */
-    private void disableLinesAroundNumber(int[][] puzzle, boolean[][] horizontal, boolean[][] vertical, int number)
-    {
-        for (int r = 0; r < size(); r++) {
-            for (int c = 0; c < size(); c++) {
-                if (puzzle[r][c] == number) {
-                    horizontal[r][c] = false;
-                    vertical[r][c] = false;
-                    
-                    horizontal[r + 1][c] = false;
-                    vertical[r][c + 1] = false;
-                }
-            }
-        }
-    }
-    
-    /**
-     * Disables any dead end pathways.
-     */
-    private void disableDeadEndPaths(boolean[][] horizontal, boolean[][] vertical)
-    {
-        int disabledPaths = 0;
-        for (int r = 0; r <= size(); r++) {
-            for (int c = 0; c <= size(); c++) {
-                int pointPathways = 0;
-                
-                // path on the right
-                if (c < size() && horizontal[r][c]) pointPathways++;
-                
-                // path on the left
-                if (c > 0 && horizontal[r][c - 1]) pointPathways++;
-                
-                // path on the bottom
-                if (r < size() && vertical[r][c]) pointPathways++;
-                
-                // path on the top
-                if (r > 0 && vertical[r - 1][c]) pointPathways++;
-                
-                // if the intersection only has one pathway.. disable it
-                if (pointPathways == 1) {
-                    if (c < size()) horizontal[r][c] = false;
-                    if (c > 0) horizontal[r][c - 1] = false;
-                    if (r < size()) vertical[r][c] = false;
-                    if (r > 0) vertical[r - 1][c] = false;
-                    disabledPaths++;
-                }
-            }
-        }
-        
-        // make sure the paths in the newly created intersections aren't alone either
-        if (disabledPaths > 0) {
-            disableDeadEndPaths(horizontal, vertical);
-        }
+        state.toggleHorizontal(r, c);
     }
 
     /**
@@ -212,7 +251,6 @@ public class Puzzle
      */
     public void clear()
     {
-        horizontal = new boolean[size() + 1][size()];
-        vertical = new boolean[size()][size() + 1];
+        state.clear();
     }
 }
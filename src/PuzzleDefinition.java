@@ -0,0 +1,326 @@
+/**
+ * PuzzleDefinition holds the parts of a Slither Link puzzle that never change while it is played:
+ * the numbers in the squares, and the grid lines that can possibly be used.
+ * Definitions are interned, so every game of the same board shares one definition.
+ * None of the arrays returned may be modified.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+public final class PuzzleDefinition
+{
+    // every definition in use, keyed by its numbers; entries go once no game uses them
+    private static final Map<PuzzleDefinition, WeakReference<PuzzleDefinition>> interned = new WeakHashMap<>();
+
+    private final int[][] puzzle;               // the numbers in the squares
+                                                // -1 if the square is empty, 0-3 otherwise
+    private final boolean[][] gridHorizontal;   // the horizontal line segments of the grid
+                                                // true if the segment could be on, false otherwise
+    private final boolean[][] gridVertical;     // the vertical line segments of the grid
+                                                // true if the segment could be on, false otherwise
+    private final long[][] clueMask;            // the squares with numbers, bit-packed like SolutionState
+    private final long[][] clueLowBits;         // bit 0 of each number
+    private final long[][] clueHighBits;        // bit 1 of each number
+    private final long[][] gridHorizontalOff;   // the segments the grid can't use, bit-packed
+    private final long[][] gridVerticalOff;
+    private final int hash;
+
+    /**
+     * Creates a definition; the grids are null when the definition is only used to look up another.
+     */
+    private PuzzleDefinition(int[][] puzzle, boolean[][] gridHorizontal, boolean[][] gridVertical)
+    {
+        this.puzzle = puzzle;
+        this.gridHorizontal = gridHorizontal;
+        this.gridVertical = gridVertical;
+        this.hash = Arrays.deepHashCode(puzzle);
+
+        // lookup keys don't need the packed numbers
+        boolean key = gridHorizontal == null;
+        clueMask = key ? null : pack(puzzle, -1);
+        clueLowBits = key ? null : pack(puzzle, 0);
+        clueHighBits = key ? null : pack(puzzle, 1);
+        gridHorizontalOff = key ? null : packUnused(gridHorizontal);
+        gridVerticalOff = key ? null : packUnused(gridVertical);
+    }
+
+    /**
+     * Returns, bit-packed by row, which squares have a number (bit -1), or the given bit of each number.
+     */
+    private static long[][] pack(int[][] puzzle, int bit)
+    {
+        long[][] packed = new long[puzzle.length][(puzzle.length + 63) / 64];
+        for (int r = 0; r < puzzle.length; r++) {
+            for (int c = 0; c < puzzle.length; c++) {
+                int number = puzzle[r][c];
+                if (number >= 0 && (bit < 0 || (number >> bit & 1) != 0)) packed[r][c >>> 6] |= 1L << c;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Returns, bit-packed by row, which segments of grid can't be used.
+     */
+    private static long[][] packUnused(boolean[][] grid)
+    {
+        long[][] packed = new long[grid.length][];
+        for (int r = 0; r < grid.length; r++) {
+            packed[r] = new long[(grid[r].length + 63) / 64];
+            for (int c = 0; c < grid[r].length; c++)
+                if (!grid[r][c]) packed[r][c >>> 6] |= 1L << c;
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the definition of the puzzle in lines.
+     * The first String in the argument goes into puzzle[0],
+     * The second String goes into puzzle[1], etc.
+     * lines is assumed to hold a valid square puzzle; see eg3_1.txt and eg5_1.txt for examples.
+     */
+    public static PuzzleDefinition parse(ArrayList<String> lines)
+    {
+        int[][] puzzle = new int[lines.size()][lines.size()];
+        for (int r = 0; r < lines.size(); r++) {
+            String line = lines.get(r);
+            String[] rowValues = line.split(" ");
+            for (int c = 0; c < lines.size(); c++) {
+                puzzle[r][c] = Integer.parseInt(rowValues[c]);
+            }
+        }
+        return internOwned(puzzle);
+    }
+
+    /**
+     * Returns the shared definition of the puzzle with the given numbers.
+     * The grid is only worked out the first time a puzzle is seen.
+     * puzzle is not modified, nor kept.
+     */
+    public static PuzzleDefinition intern(int[][] puzzle)
+    {
+        int[][] numbers = new int[puzzle.length][];
+        for (int r = 0; r < puzzle.length; r++) numbers[r] = puzzle[r].clone();
+        return internOwned(numbers);
+    }
+
+    /**
+     * Returns the shared definition of the puzzle with the given numbers, using the grid given
+     * (as previously worked out for these numbers) rather than working it out again.
+     * None of the arrays are modified, nor kept.
+     */
+    public static PuzzleDefinition intern(int[][] puzzle, boolean[][] gridHorizontal, boolean[][] gridVertical)
+    {
+        int[][] numbers = new int[puzzle.length][];
+        for (int r = 0; r < puzzle.length; r++) numbers[r] = puzzle[r].clone();
+        PuzzleDefinition key = new PuzzleDefinition(numbers, null, null);
+
+        synchronized (interned) {
+            WeakReference<PuzzleDefinition> reference = interned.get(key);
+            PuzzleDefinition definition = reference == null ? null : reference.get();
+            if (definition == null) {
+                boolean[][] horizontal = new boolean[gridHorizontal.length][];
+                for (int r = 0; r < gridHorizontal.length; r++) horizontal[r] = gridHorizontal[r].clone();
+                boolean[][] vertical = new boolean[gridVertical.length][];
+                for (int r = 0; r < gridVertical.length; r++) vertical[r] = gridVertical[r].clone();
+                definition = new PuzzleDefinition(numbers, horizontal, vertical);
+                interned.put(definition, new WeakReference<>(definition));
+            }
+            return definition;
+        }
+    }
+
+    /**
+     * Returns the shared definition of the puzzle with the given numbers, which nothing else refers to.
+     */
+    private static PuzzleDefinition internOwned(int[][] numbers)
+    {
+        PuzzleDefinition key = new PuzzleDefinition(numbers, null, null);
+
+        synchronized (interned) {
+            WeakReference<PuzzleDefinition> reference = interned.get(key);
+            PuzzleDefinition definition = reference == null ? null : reference.get();
+            if (definition == null) {
+                definition = withGrid(numbers);
+                interned.put(definition, new WeakReference<>(definition));
+            }
+            return definition;
+        }
+    }
+
+    /**
+     * Returns a new definition for puzzle, working out which grid lines can be used.
+     */
+    private static PuzzleDefinition withGrid(int[][] puzzle)
+    {
+        int size = puzzle.length;
+        boolean[][] gridHorizontal = new boolean[size + 1][size];
+        for (int r = 0; r < gridHorizontal.length; r++)
+            for (int c = 0; c < gridHorizontal[r].length; c++)
+                gridHorizontal[r][c] = true;
+        boolean[][] gridVertical = new boolean[size][size + 1];
+        for (int r = 0; r < gridVertical.length; r++)
+            for (int c = 0; c < gridVertical[r].length; c++)
+                gridVertical[r][c] = true;
+
+        disableLinesAroundNumber(puzzle, gridHorizontal, gridVertical, 0);
+        disableDeadEndPaths(size, gridHorizontal, gridVertical);
+
+        return new PuzzleDefinition(puzzle, gridHorizontal, gridVertical);
+    }
+
+    /**
+     * Returns the size of the puzzle.
+     */
+    public int size()
+    {
+        return puzzle.length;
+    }
+
+    /**
+     * Returns the number layout of the puzzle.
+     */
+    public int[][] getPuzzle()
+    {
+        return puzzle;
+    }
+
+    /**
+     * Returns the lines that could be used, horizontally.
+     */
+    public boolean[][] getGridHorizontal()
+    {
+        return gridHorizontal;
+    }
+
+    /**
+     * Returns the lines that could be used, vertically.
+     */
+    public boolean[][] getGridVertical()
+    {
+        return gridVertical;
+    }
+
+    /**
+     * Returns the squares that have numbers, bit-packed by row (square c is bit c % 64 of word c / 64).
+     */
+    public long[][] getClueMask()
+    {
+        return clueMask;
+    }
+
+    /**
+     * Returns the lowest bit of each number, bit-packed by row.
+     */
+    public long[][] getClueLowBits()
+    {
+        return clueLowBits;
+    }
+
+    /**
+     * Returns the second-lowest bit of each number, bit-packed by row.
+     */
+    public long[][] getClueHighBits()
+    {
+        return clueHighBits;
+    }
+
+    /**
+     * Returns the horizontal segments the grid can't use, bit-packed by row like SolutionState.
+     */
+    public long[][] getGridHorizontalOffBits()
+    {
+        return gridHorizontalOff;
+    }
+
+    /**
+     * Returns the vertical segments the grid can't use, bit-packed by row.
+     */
+    public long[][] getGridVerticalOffBits()
+    {
+        return gridVerticalOff;
+    }
+
+    /**
+     * Definitions are equal when they have the same numbers.
+     */
+    public boolean equals(Object other)
+    {
+        return other instanceof PuzzleDefinition
+            && hash == ((PuzzleDefinition) other).hash
+            && Arrays.deepEquals(puzzle, ((PuzzleDefinition) other).puzzle);
+    }
+
+    /**
+     * Returns a hash of the numbers.
+     */
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    /**
+     * Disables the grid lines around a certain number.
+     */
+    private static void disableLinesAroundNumber(int[][] puzzle, boolean[][] horizontal, boolean[][] vertical, int number)
+    {
+        for (int r = 0; r < puzzle.length; r++) {
+            for (int c = 0; c < puzzle.length; c++) {
+                if (puzzle[r][c] == number) {
+                    horizontal[r][c] = false;
+                    vertical[r][c] = false;
+
+                    horizontal[r + 1][c] = false;
+                    vertical[r][c + 1] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Disables any dead end pathways.
+     * A dot left with a single pathway by that is checked again straight away,
+     * so each dot is looked at a constant number of times however big the puzzle is.
+     */
+    private static void disableDeadEndPaths(int size, boolean[][] horizontal, boolean[][] vertical)
+    {
+        int[] stack = new int[(size + 1) * (size + 1)];
+        int top = 0;
+        for (int dot = 0; dot < stack.length; dot++) stack[top++] = dot;
+
+        while (top > 0) {
+            int dot = stack[--top];
+            int r = dot / (size + 1);
+            int c = dot % (size + 1);
+
+            int pointPathways = 0;
+            int otherEnd = -1;
+
+            // path on the right
+            if (c < size && horizontal[r][c]) { pointPathways++; otherEnd = dot + 1; }
+
+            // path on the left
+            if (c > 0 && horizontal[r][c - 1]) { pointPathways++; otherEnd = dot - 1; }
+
+            // path on the bottom
+            if (r < size && vertical[r][c]) { pointPathways++; otherEnd = dot + size + 1; }
+
+            // path on the top
+            if (r > 0 && vertical[r - 1][c]) { pointPathways++; otherEnd = dot - size - 1; }
+
+            // if the intersection only has one pathway.. disable it,
+            // and make sure the dot at its other end isn't left alone either
+            if (pointPathways == 1) {
+                if (c < size) horizontal[r][c] = false;
+                if (c > 0) horizontal[r][c - 1] = false;
+                if (r < size) vertical[r][c] = false;
+                if (r > 0) vertical[r - 1][c] = false;
+                stack[top++] = otherEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * PuzzleServer serves Slither Link games over HTTP, so a web frontend can use
+ * Puzzle, AnalyzeSolution and Solver without reimplementing them.
+ * It uses the JDK's built-in HTTP server; each request runs on its own virtual thread
+ * when the JVM supports them (Java 21+), and on a bounded thread pool otherwise.
+ *
+ * Endpoints (all responses are JSON):
+ *   POST   /sessions                        body is a puzzle in eg*.txt format, or ?board=eg5_2.txt
+ *   GET    /sessions/{id}                   the puzzle and the current solution
+ *   POST   /sessions/{id}/move?line=h&r=&c= toggles a horizontal (h) or vertical (v) line segment
+ *   POST   /sessions/{id}/clear             clears the current solution
+ *   GET    /sessions/{id}/finished          the message from AnalyzeSolution.finished
+ *   GET    /sessions/{id}/solution          a solution from Solver, without changing the session;
+ *                                           boards seen before (even rotated or mirrored) come from a SolutionCache;
+ *                                           503 if the solve takes longer than the budget (see setSolveBudget)
+ *   DELETE /sessions/{id}                   ends the session
+ *
+ * Posted puzzles are at most MAX_SIZE squares across, and their numbers must be -1 (blank) to 3.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PuzzleServer
+{
+    public static final int MAX_SIZE = 1000;                            // the biggest puzzle that can be posted
+    public static final int MAX_BODY_BYTES = 3 * (MAX_SIZE + 1) * MAX_SIZE;     // "-1 " per square
+    public static final long DEFAULT_SOLVE_MILLIS = 10000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;            // bounds the number of requests being worked on at once
+    private final Semaphore sessionSlots;       // a slot is taken before a session is made, and given back when it ends
+    private final ConcurrentHashMap<String, Puzzle> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSession = new AtomicLong(1);
+    private final SolutionCache solutions = new SolutionCache(1 << 24);
+    private volatile long solveMillis = DEFAULT_SOLVE_MILLIS;
+
+    /**
+     * Creates a server on localhost:port (0 picks a free port), working on at most
+     * maxConcurrent requests and holding at most maxSessions games at once.
+     * The server isn't started until start() is called.
+     */
+    public PuzzleServer(int port, int maxConcurrent, int maxSessions) throws IOException
+    {
+        sessionSlots = new Semaphore(maxSessions);
+        permits = new Semaphore(maxConcurrent);
+        executor = newExecutor(maxConcurrent);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/sessions", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor if this JVM has one, or else a pool of that many platform threads.
+     */
+    private static ExecutorService newExecutor(int threads)
+    {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * Stops serving requests, and ends every session.
+     */
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+        for (String id : sessions.keySet()) {
+            if (sessions.remove(id) != null) sessionSlots.release();
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Sets how long a solve may take before the solution endpoint gives up on it.
+     */
+    public void setSolveBudget(long millis)
+    {
+        solveMillis = millis;
+    }
+
+    /**
+     * Returns the number of sessions currently open.
+     */
+    public int sessionCount()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * Handles one request, turning failures into error responses.
+     */
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try {
+            if (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+                respond(exchange, 503, error("server busy"));
+                return;
+            }
+            try {
+                route(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("interrupted"));
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a request to the right endpoint.
+     */
+    private void route(HttpExchange exchange) throws IOException
+    {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");   // "", "sessions", id, action
+        Map<String, String> query = query(exchange.getRequestURI());
+
+        // new session
+        if (path.length == 2) {
+            if (!method.equals("POST")) {
+                respond(exchange, 405, error("use POST to create a session"));
+                return;
+            }
+            createSession(exchange, query);
+            return;
+        }
+
+        Puzzle p = sessions.get(path[2]);
+        if (p == null) {
+            respond(exchange, 404, error("no session " + path[2]));
+            return;
+        }
+        String action = path.length > 3 ? path[3] : "";
+        String endpoint = method + " " + action;
+
+        // solving can take a while, so it works on a copy, leaving the session free
+        if (endpoint.equals("GET solution")) {
+            Puzzle solved;
+            synchronized (p) {
+                solved = p.fork();
+            }
+            int status = solutions.solve(solved, solveMillis);
+            if (status == Solver.Result.SOLVED) respond(exchange, 200, "{\"solved\":true," + lines(solved.getHorizontal(), solved.getVertical()) + "}");
+            else if (status == Solver.Result.UNSOLVABLE) respond(exchange, 200, "{\"solved\":false}");
+            else respond(exchange, 503, error("no solution found within " + solveMillis + "ms"));
+            return;
+        }
+
+        // a session is used by one request at a time
+        synchronized (p) {
+            switch (endpoint) {
+                case "GET ":
+                    respond(exchange, 200, board(p));
+                    break;
+                case "DELETE ":
+                    if (sessions.remove(path[2]) != null) sessionSlots.release();
+                    respond(exchange, 200, "{\"deleted\":\"" + path[2] + "\"}");
+                    break;
+                case "POST move":
+                    move(p, query);
+                    respond(exchange, 200, board(p));
+                    break;
+                case "POST clear":
+                    p.clear();
+                    respond(exchange, 200, board(p));
+                    break;
+                case "GET finished":
+                    respond(exchange, 200, "{\"finished\":\"" + AnalyzeSolution.finished(p) + "\"}");
+                    break;
+                default:
+                    respond(exchange, 404, error("no endpoint " + endpoint));
+            }
+        }
+    }
+
+    /**
+     * Creates a session from the request body, or from the board named in the query, if there is room for one.
+     */
+    private void createSession(HttpExchange exchange, Map<String, String> query) throws IOException
+    {
+        // the slot is taken before the puzzle is read, so concurrent requests can't overshoot the limit
+        if (!sessionSlots.tryAcquire()) {
+            respond(exchange, 503, error("too many sessions"));
+            return;
+        }
+        Puzzle p = null;
+        try {
+            p = readPuzzle(exchange, query);
+        } finally {
+            if (p == null) sessionSlots.release();
+        }
+        if (p == null) return;
+
+        String id = Long.toString(nextSession.getAndIncrement());
+        sessions.put(id, p);
+        respond(exchange, 201, "{\"id\":\"" + id + "\"," + board(p).substring(1));
+    }
+
+    /**
+     * Returns the puzzle in the request body, or the board named in the query.
+     * Returns null if the body is too big, having sent an error.
+     */
+    private Puzzle readPuzzle(HttpExchange exchange, Map<String, String> query) throws IOException
+    {
+        List<String> lines;
+        if (query.containsKey("board")) {
+            if (!query.get("board").matches("eg[0-9_]+\\.txt")) throw new IllegalArgumentException("no board " + query.get("board"));
+            lines = new FileIO(query.get("board")).getLines();
+            if (lines == null) throw new IllegalArgumentException("no board " + query.get("board"));
+        } else {
+            // the body is read no further than the biggest puzzle allowed could be
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                respond(exchange, 413, error("puzzle too big; at most " + MAX_SIZE + "x" + MAX_SIZE));
+                return null;
+            }
+            lines = new ArrayList<>();
+            for (String line : new String(body, StandardCharsets.UTF_8).split("\n"))
+                if (!line.trim().isEmpty()) lines.add(line.trim());
+        }
+        return new Puzzle(PuzzleDefinition.intern(parse(lines)));
+    }
+
+    /**
+     * Returns the numbers in lines, a puzzle in eg*.txt format.
+     * Throws IllegalArgumentException unless it is square, at most MAX_SIZE across, and every number is -1 to 3.
+     */
+    private static int[][] parse(List<String> lines)
+    {
+        int n = lines.size();
+        if (n == 0 || n > MAX_SIZE) throw new IllegalArgumentException("a puzzle must be 1 to " + MAX_SIZE + " rows");
+        int[][] numbers = new int[n][];
+        for (int r = 0; r < n; r++) {
+            String[] row = lines.get(r).trim().split("\\s+");
+            if (row.length != n) throw new IllegalArgumentException("row " + r + " doesn't have " + n + " numbers");
+            numbers[r] = new int[n];
+            for (int c = 0; c < n; c++) {
+                try {
+                    numbers[r][c] = Integer.parseInt(row[c]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("invalid number " + row[c]);
+                }
+                if (numbers[r][c] < -1 || numbers[r][c] > 3) throw new IllegalArgumentException("invalid number " + row[c]);
+            }
+        }
+        return numbers;
+    }
+
+    /**
+     * Toggles the line segment given by the query.
+     */
+    private void move(Puzzle p, Map<String, String> query)
+    {
+        String line = query.get("line");
+        int r;
+        int c;
+        try {
+            r = Integer.parseInt(query.get("r"));
+            c = Integer.parseInt(query.get("c"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("r and c must be numbers");
+        }
+
+        if ("h".equals(line)) p.horizontalClick(r, c);
+        else if ("v".equals(line)) p.verticalClick(r, c);
+        else throw new IllegalArgumentException("line must be h or v");
+    }
+
+    /**
+     * Returns the puzzle and the current solution of p as JSON.
+     */
+    private static String board(Puzzle p)
+    {
+        StringBuilder json = new StringBuilder("{\"size\":").append(p.size()).append(",\"puzzle\":[");
+        for (int r = 0; r < p.size(); r++) {
+            if (r > 0) json.append(',');
+            json.append(Arrays.toString(p.getPuzzle()[r]).replace(" ", ""));
+        }
+        json.append("],").append(lines(p.getHorizontal(), p.getVertical())).append('}');
+        return json.toString();
+    }
+
+    /**
+     * Returns line segments as JSON, with one string of 0s and 1s per row.
+     */
+    private static String lines(boolean[][] horizontal, boolean[][] vertical)
+    {
+        return "\"horizontal\":" + rows(horizontal) + ",\"vertical\":" + rows(vertical);
+    }
+
+    /**
+     * Returns the rows of segments as a JSON array of strings.
+     */
+    private static String rows(boolean[][] segments)
+    {
+        StringBuilder json = new StringBuilder("[");
+        for (int r = 0; r < segments.length; r++) {
+            if (r > 0) json.append(',');
+            json.append('"');
+            for (boolean segment : segments[r]) json.append(segment ? '1' : '0');
+            json.append('"');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Returns an error message as JSON.
+     */
+    private static String error(String message)
+    {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    /**
+     * Returns the parameters in the query string of uri.
+     */
+    private static Map<String, String> query(URI uri)
+    {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getQuery();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) parameters.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+        return parameters;
+    }
+
+    /**
+     * Sends a JSON response.
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException
+    {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Serves games on the port given (default 8080) until the JVM is stopped.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        PuzzleServer server = new PuzzleServer(port, 4 * Runtime.getRuntime().availableProcessors(), 100000);
+        server.start();
+        System.out.println("Serving Slither Link on http://localhost:" + server.getPort() + "/sessions");
+    }
+}
@@ -0,0 +1,181 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class provides unit test cases for the PuzzleServer class, against localhost.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class PuzzleServerTest
+{
+    private PuzzleServer server;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        server = new PuzzleServer(0, 8, 100);
+        server.start();
+    }
+
+    /**
+     * Tears down the test fixture.
+     *
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        server.stop();
+    }
+
+    // Sends a request and returns "status body".
+    private String request(String method, String path, String body) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null)
+        {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) { out.write(body.getBytes(StandardCharsets.UTF_8)); }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        in.close();
+        return status + " " + response;
+    }
+
+    // Returns the session id in a creation response.
+    private String id(String response)
+    {
+        int start = response.indexOf("\"id\":\"") + 6;
+        return response.substring(start, response.indexOf('"', start));
+    }
+
+    @Test
+    public void testsession() throws IOException
+    {
+        String created = request("POST", "/sessions", "-1 -1 3\n-1 -1 1\n3 -1 2\n");
+        assertTrue(created, created.startsWith("201 "));
+        assertTrue(created, created.contains("\"puzzle\":[[-1,-1,3],[-1,-1,1],[3,-1,2]]"));
+        String id = id(created);
+        assertEquals(1, server.sessionCount());
+
+        assertEquals("200 {\"finished\":\"Wrong number\"}", request("GET", "/sessions/" + id + "/finished", null));
+
+        String moved = request("POST", "/sessions/" + id + "/move?line=h&r=1&c=2", null);
+        assertTrue(moved, moved.contains("\"horizontal\":[\"000\",\"001\",\"000\",\"000\"]"));
+
+        assertTrue(request("DELETE", "/sessions/" + id, null).startsWith("200 "));
+        assertEquals(0, server.sessionCount());
+        assertTrue(request("GET", "/sessions/" + id, null).startsWith("404 "));
+    }
+
+    @Test
+    public void testsolution() throws IOException
+    {
+        String id = id(request("POST", "/sessions?board=eg5_2.txt", null));
+        String solution = request("GET", "/sessions/" + id + "/solution", null);
+        assertTrue(solution, solution.startsWith("200 {\"solved\":true"));
+
+        // play the solution through the move endpoint
+        String[] rows = solution.substring(solution.indexOf("\"horizontal\":[") + 14, solution.indexOf("]")).replace("\"", "").split(",");
+        for (int r = 0; r < rows.length; r++)
+            for (int c = 0; c < rows[r].length(); c++)
+                if (rows[r].charAt(c) == '1') request("POST", "/sessions/" + id + "/move?line=h&r=" + r + "&c=" + c, null);
+        String vertical = solution.substring(solution.indexOf("\"vertical\":[") + 12, solution.lastIndexOf("]"));
+        rows = vertical.replace("\"", "").split(",");
+        for (int r = 0; r < rows.length; r++)
+            for (int c = 0; c < rows[r].length(); c++)
+                if (rows[r].charAt(c) == '1') request("POST", "/sessions/" + id + "/move?line=v&r=" + r + "&c=" + c, null);
+
+        assertEquals("200 {\"finished\":\"Finished\"}", request("GET", "/sessions/" + id + "/finished", null));
+    }
+
+    @Test
+    public void testerrors() throws IOException
+    {
+        assertTrue(request("POST", "/sessions", "not a puzzle").startsWith("400 "));
+        assertTrue(request("GET", "/sessions", null).startsWith("405 "));
+        String id = id(request("POST", "/sessions?board=eg3_1.txt", null));
+        assertTrue(request("POST", "/sessions/" + id + "/move?line=x&r=1&c=1", null).startsWith("400 "));
+        assertTrue(request("GET", "/sessions/" + id + "/nothing", null).startsWith("404 "));
+    }
+
+    @Test
+    public void testlimits() throws IOException
+    {
+        // numbers must be -1 to 3, on a square board
+        assertTrue(request("POST", "/sessions", "-1 4\n-1 -1\n").startsWith("400 "));
+        assertTrue(request("POST", "/sessions", "-1 -1\n-1\n").startsWith("400 "));
+
+        // too many rows, and too many bytes
+        StringBuilder rows = new StringBuilder();
+        for (int r = 0; r <= PuzzleServer.MAX_SIZE; r++) rows.append("-1\n");
+        assertTrue(request("POST", "/sessions", rows.toString()).startsWith("400 "));
+        // just over the limit, so the server has read the whole body before it answers
+        char[] huge = new char[PuzzleServer.MAX_BODY_BYTES + 1];
+        java.util.Arrays.fill(huge, '1');
+        assertTrue(request("POST", "/sessions", new String(huge)).startsWith("413 "));
+        assertEquals(0, server.sessionCount());
+    }
+
+    @Test
+    public void testsolveBudget() throws IOException
+    {
+        // a solve that runs out of time gives up, and leaves the session usable
+        server.setSolveBudget(1);
+        int[][] clues = new LoopGenerator(60, 5).getClues(0.5, 5);
+        StringBuilder body = new StringBuilder();
+        for (int[] row : clues)
+            body.append(java.util.Arrays.toString(row).replaceAll("[\\[\\],]", "")).append('\n');
+        String id = id(request("POST", "/sessions", body.toString()));
+        String timedOut = request("GET", "/sessions/" + id + "/solution", null);
+        assertTrue(timedOut, timedOut.startsWith("503 "));
+        assertTrue(request("GET", "/sessions/" + id, null).startsWith("200 "));
+
+        server.setSolveBudget(PuzzleServer.DEFAULT_SOLVE_MILLIS);
+        String solved = request("GET", "/sessions/" + id + "/solution", null);
+        assertTrue(solved, solved.startsWith("200 {\"solved\":true"));
+    }
+
+    @Test
+    public void testsessionLimit() throws Exception
+    {
+        server.stop();
+        server = new PuzzleServer(0, 16, 3);
+        server.start();
+
+        // many requests at once make no more sessions than the limit
+        java.util.concurrent.ExecutorService clients = java.util.concurrent.Executors.newFixedThreadPool(12);
+        java.util.List<java.util.concurrent.Future<String>> responses = new java.util.ArrayList<>();
+        java.util.List<String> created = new java.util.ArrayList<>();
+        try {
+            for (int i = 0; i < 12; i++) responses.add(clients.submit(() -> request("POST", "/sessions?board=eg5_2.txt", null)));
+            for (java.util.concurrent.Future<String> response : responses)
+                if (response.get().startsWith("201 ")) created.add(id(response.get()));
+            assertEquals(3, created.size());
+        } finally {
+            clients.shutdownNow();
+        }
+        assertEquals(3, server.sessionCount());
+
+        // ending a session makes room, and a puzzle that isn't made doesn't take any
+        assertTrue(request("POST", "/sessions?board=eg5_2.txt", null).startsWith("503 "));
+        assertTrue(request("DELETE", "/sessions/" + created.get(0), null).startsWith("200 "));
+        assertTrue(request("POST", "/sessions", "not a puzzle").startsWith("400 "));
+        assertTrue(request("POST", "/sessions?board=eg5_2.txt", null).startsWith("201 "));
+        assertEquals(3, server.sessionCount());
+    }
+}
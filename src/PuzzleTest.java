@@ -158,4 +158,148 @@ public class PuzzleTest
     {
         testPuzzle();
     }
+
+    @Test
+    public void testsharedDefinition() 
+    {
+        Puzzle q = new Puzzle("eg3_1.txt");
+        assertTrue(p.getDefinition() == q.getDefinition());
+        assertTrue(p.getPuzzle() == q.getPuzzle());
+        assertTrue(p.getGridHorizontal() == q.getGridHorizontal());
+        assertFalse(p.getState() == q.getState());
+        
+        p.horizontalClick(1,2);
+        assertEquals(true, p.getHorizontal()[1][2]);
+        assertEquals(false, q.getHorizontal()[1][2]);
+        
+        Puzzle r = new Puzzle(p.getDefinition());
+        assertTrue(r.getDefinition() == p.getDefinition());
+        assertEquals(false, r.getHorizontal()[1][2]);
+        assertFalse(new Puzzle("eg3_2.txt").getDefinition() == p.getDefinition());
+    }
+
+    @Test
+    public void testsnapshot() 
+    {
+        p.horizontalClick(1,2);
+        SolutionState before = p.snapshot();
+        Puzzle q = p.fork();
+        assertTrue(q.getHorizontal()[0] == p.getHorizontal()[0]);
+        
+        p.verticalClick(2,0);
+        q.horizontalClick(1,2);
+        assertEquals(true, p.getHorizontal()[1][2]);
+        assertEquals(true, p.getVertical()[2][0]);
+        assertEquals(false, q.getHorizontal()[1][2]);
+        assertEquals(false, q.getVertical()[2][0]);
+        assertEquals(true, before.getHorizontal()[1][2]);
+        assertEquals(false, before.getVertical()[2][0]);
+        
+        // unchanged rows are still shared
+        assertTrue(q.getHorizontal()[0] == p.getHorizontal()[0]);
+        assertTrue(q.getVertical()[0] == before.getVertical()[0]);
+        
+        p.restore(before);
+        assertEquals(false, p.getVertical()[2][0]);
+        p.clear();
+        assertEquals(true, before.getHorizontal()[1][2]);
+        p.restore(before);
+        assertEquals(true, p.getHorizontal()[1][2]);
+    }
+
+    @Test
+    public void testtriState()
+    {
+        // the lines round a 0 start OFF, and the rest UNKNOWN
+        java.util.ArrayList<String> lines = new java.util.ArrayList<>();
+        lines.add("0 -1");
+        lines.add("-1 -1");
+        Puzzle q = new Puzzle(lines);
+        assertEquals(SolutionState.OFF, q.getHorizontalState(0, 0));
+        assertEquals(SolutionState.OFF, q.getVerticalState(0, 1));
+        assertEquals(SolutionState.UNKNOWN, q.getHorizontalState(2, 1));
+        assertTrue(q.getGridHorizontal() == q.getDefinition().getGridHorizontal());
+        assertTrue(q.getState().count(SolutionState.OFF) >= 4);
+        assertEquals(12, q.getState().count(SolutionState.OFF) + q.getState().count(SolutionState.UNKNOWN));
+
+        // crossing out changes the grid view of this game only
+        q.setHorizontalState(2, 1, SolutionState.OFF);
+        assertEquals(false, q.getGridHorizontal()[2][1]);
+        assertEquals(true, q.getDefinition().getGridHorizontal()[2][1]);
+
+        // a line drawn where the grid can't be used goes back to OFF when it is taken away
+        q.horizontalClick(0, 0);
+        assertEquals(SolutionState.ON, q.getHorizontalState(0, 0));
+        assertEquals(true, q.getHorizontal()[0][0]);
+        assertEquals(true, q.getGridHorizontal()[0][0]);
+        q.horizontalClick(0, 0);
+        assertEquals(SolutionState.OFF, q.getHorizontalState(0, 0));
+        q.verticalClick(1, 2);
+        q.verticalClick(1, 2);
+        assertEquals(SolutionState.UNKNOWN, q.getVerticalState(1, 2));
+
+        // clearing puts back the grid
+        q.clear();
+        assertEquals(SolutionState.UNKNOWN, q.getHorizontalState(2, 1));
+        assertTrue(q.getGridHorizontal() == q.getDefinition().getGridHorizontal());
+    }
+
+    @Test
+    public void testwords()
+    {
+        // 70 segments a row span two words
+        int[][] numbers = new int[70][70];
+        for (int[] row : numbers) java.util.Arrays.fill(row, -1);
+        SolutionState state = new Puzzle(PuzzleDefinition.intern(numbers)).getState();
+        assertEquals(-1L, state.getHorizontalWord(5, 0, SolutionState.UNKNOWN));
+        assertEquals((1L << 6) - 1, state.getHorizontalWord(5, 1, SolutionState.UNKNOWN));
+        assertEquals((1L << 7) - 1, state.getVerticalWord(5, 1, SolutionState.UNKNOWN));
+
+        state.setHorizontalWord(5, 1, -1L, SolutionState.OFF);
+        assertEquals((1L << 6) - 1, state.getHorizontalWord(5, 1, SolutionState.OFF));
+        state.setVerticalWord(2, 0, 0xF0L, SolutionState.ON);
+        assertEquals(true, state.isVertical(2, 4));
+        assertEquals(true, state.getVertical()[2][7]);
+        assertEquals(false, state.getVertical()[2][8]);
+        assertEquals(4, state.count(SolutionState.ON));
+        assertEquals(6, state.count(SolutionState.OFF));
+
+        // lines are replaced, and the ones taken away go back to how they started
+        state.setHorizontalState(5, 66, SolutionState.ON);
+        state.setHorizontalLines(5, 1, 1L << 3);
+        assertEquals(SolutionState.ON, state.getHorizontalState(5, 67));
+        assertEquals(SolutionState.UNKNOWN, state.getHorizontalState(5, 66));
+        assertEquals(SolutionState.OFF, state.getHorizontalState(5, 65));
+    }
+
+    @Test
+    public void testlistener()
+    {
+        java.util.ArrayList<String> changes = new java.util.ArrayList<>();
+        p.setListener((horizontal, r, w, changed) -> changes.add((horizontal ? "h" : "v") + r + "," + Long.toBinaryString(changed)));
+
+        p.horizontalClick(1, 2);
+        p.horizontalClick(1, 2);
+        p.verticalClick(0, 3);
+        p.setVerticalState(0, 3, SolutionState.ON);
+        assertEquals("[h1,100, h1,100, v0,1000]", changes.toString());
+
+        // restoring and clearing report just the segments that changed
+        SolutionState before = p.snapshot();
+        p.verticalClick(2, 0);
+        p.horizontalClick(3, 1);
+        changes.clear();
+        p.restore(before);
+        assertEquals("[h3,10, v2,1]", changes.toString());
+        changes.clear();
+        p.clear();
+        assertEquals("[v0,1000]", changes.toString());
+
+        // forks aren't listened to
+        changes.clear();
+        p.fork().horizontalClick(0, 0);
+        p.setListener(null);
+        p.horizontalClick(0, 0);
+        assertEquals(0, changes.size());
+    }
 }
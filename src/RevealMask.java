@@ -0,0 +1,132 @@
+/**
+ * RevealMask keeps track of which numbers of a Slither Link game are revealed:
+ * a number is shown once a line is drawn within distance 2 of its square
+ * (as measured by AnalyzeSolution.nearestLineDistance).
+ *
+ * Each square counts the lines drawn near it, so when a segment is toggled only the
+ * squares within reach of that segment are looked at, however big the board is.
+ * The squares whose number appeared or disappeared are reported, so a display
+ * can redraw just those.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+public class RevealMask
+{
+    public static final int RADIUS = 2;
+
+    private final Puzzle game;
+    private final int size;
+    private final byte[] nearLines;         // the lines drawn within RADIUS of each square
+    private final boolean[][] horizontal;   // the segments counted, so each is only counted once
+    private final boolean[][] vertical;
+    private final int[] changed;            // the squares (r * size + c) changed by the last update
+    private int changedCount;
+
+    /**
+     * Creates the mask for the lines currently drawn in game.
+     */
+    public RevealMask(Puzzle game)
+    {
+        this.game = game;
+        size = game.size();
+        nearLines = new byte[size * size];
+        horizontal = new boolean[size + 1][size];
+        vertical = new boolean[size][size + 1];
+        changed = new int[(2 * RADIUS + 2) * (2 * RADIUS + 1)];
+        reset();
+    }
+
+    /**
+     * Recounts every square from the lines drawn in the game, after it was cleared or restored.
+     */
+    public void reset()
+    {
+        java.util.Arrays.fill(nearLines, (byte) 0);
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (c < size) horizontal[r][c] = false;
+                if (r < size) vertical[r][c] = false;
+            }
+        }
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (c < size) updateHorizontal(r, c);
+                if (r < size) updateVertical(r, c);
+            }
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Returns whether the number in Square r,c is revealed.
+     */
+    public boolean isRevealed(int r, int c)
+    {
+        return nearLines[r * size + c] > 0;
+    }
+
+    /**
+     * Catches up with the horizontal segment to the right of Dot r,c, after it was toggled in the game.
+     * Returns the number of squares whose number appeared or disappeared; see getChanged().
+     */
+    public int updateHorizontal(int r, int c)
+    {
+        changedCount = 0;
+        boolean on = game.getState().isHorizontal(r, c);
+        if (on == horizontal[r][c]) return 0;
+        horizontal[r][c] = on;
+
+        // a square above the segment is a row further away than one below it
+        for (int row = r - RADIUS - 1; row <= r + RADIUS; row++) {
+            int rowDistance = row >= r ? row - r : r - 1 - row;
+            int reach = RADIUS - rowDistance;
+            for (int column = c - reach; column <= c + reach; column++) count(row, column, on);
+        }
+        return changedCount;
+    }
+
+    /**
+     * Catches up with the vertical segment below Dot r,c, after it was toggled in the game.
+     * Returns the number of squares whose number appeared or disappeared; see getChanged().
+     */
+    public int updateVertical(int r, int c)
+    {
+        changedCount = 0;
+        boolean on = game.getState().isVertical(r, c);
+        if (on == vertical[r][c]) return 0;
+        vertical[r][c] = on;
+
+        // a square left of the segment is a column further away than one right of it
+        for (int column = c - RADIUS - 1; column <= c + RADIUS; column++) {
+            int columnDistance = column >= c ? column - c : c - 1 - column;
+            int reach = RADIUS - columnDistance;
+            for (int row = r - reach; row <= r + reach; row++) count(row, column, on);
+        }
+        return changedCount;
+    }
+
+    /**
+     * Counts a line near Square r,c in or out, noting the square if its number appears or disappears.
+     */
+    private void count(int r, int c, boolean on)
+    {
+        if (r < 0 || r >= size || c < 0 || c >= size) return;
+        int square = r * size + c;
+        if (on) {
+            if (nearLines[square]++ == 0) changed[changedCount++] = square;
+        } else {
+            if (--nearLines[square] == 0) changed[changedCount++] = square;
+        }
+    }
+
+    /**
+     * Returns the squares (r * size + c) whose number appeared or disappeared in the last update;
+     * only the first count returned by the update are meaningful.
+     */
+    public int[] getChanged()
+    {
+        return changed;
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Random;
+
+/**
+ * This class provides unit test cases for the RevealMask class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class RevealMaskTest
+{
+    private Puzzle p;
+    private RevealMask mask;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(12, 4).getClues()));
+        mask = new RevealMask(p);
+    }
+
+    // Returns whether the number in Square r,c should be shown, worked out from scratch.
+    private boolean revealed(int r, int c)
+    {
+        int distance = AnalyzeSolution.nearestLineDistance(p, r, c);
+        return distance != -1 && distance <= RevealMask.RADIUS;
+    }
+
+    @Test
+    public void testupdate()
+    {
+        Random random = new Random(9);
+        for (int i = 0; i < 400; i++) {
+            boolean[][] before = new boolean[12][12];
+            for (int r = 0; r < 12; r++)
+                for (int c = 0; c < 12; c++)
+                    before[r][c] = mask.isRevealed(r, c);
+
+            int count;
+            if (random.nextBoolean()) {
+                int r = random.nextInt(13);
+                int c = random.nextInt(12);
+                p.horizontalClick(r, c);
+                count = mask.updateHorizontal(r, c);
+            } else {
+                int r = random.nextInt(12);
+                int c = random.nextInt(13);
+                p.verticalClick(r, c);
+                count = mask.updateVertical(r, c);
+            }
+
+            // the mask agrees with the rule, and exactly the squares that changed are reported
+            boolean[] reported = new boolean[12 * 12];
+            for (int k = 0; k < count; k++) reported[mask.getChanged()[k]] = true;
+            for (int r = 0; r < 12; r++) {
+                for (int c = 0; c < 12; c++) {
+                    assertEquals(revealed(r, c), mask.isRevealed(r, c));
+                    assertEquals(before[r][c] != mask.isRevealed(r, c), reported[r * 12 + c]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testreset()
+    {
+        p.horizontalClick(0, 0);
+        p.verticalClick(5, 5);
+        assertFalse(mask.isRevealed(0, 0));
+        mask.reset();
+        for (int r = 0; r < 12; r++)
+            for (int c = 0; c < 12; c++)
+                assertEquals(revealed(r, c), mask.isRevealed(r, c));
+
+        // updating twice for one toggle changes nothing
+        assertEquals(0, mask.updateVertical(5, 5));
+    }
+}
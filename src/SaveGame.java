@@ -0,0 +1,269 @@
+/**
+ * SaveGame saves and restores Slither Link games in a compact binary form.
+ *
+ * A save holds, in order:
+ *   the magic number "SLSV", a version byte and the size of the puzzle,
+ *   the numbers, one per 4 bits (number + 1, so an empty square is 0),
+ *   the usable grid lines, the segments that are ON, then those that are OFF (crossed out,
+ *   or unusable), one bit per segment (horizontal segments row by row, then vertical
+ *   segments row by row, each set padded to a whole byte),
+ *   and a CRC32 of everything before it.
+ * Restoring uses the saved grid, so the puzzle isn't preprocessed again.
+ * Version 1 saves, which have no OFF segments, can still be restored.
+ *
+ * A SaveGame reuses its buffer, so saving allocates almost nothing; it is not thread-safe.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+public class SaveGame
+{
+    private static final int MAGIC = 0x534c5356;    // "SLSV"
+    private static final byte VERSION = 2;
+    private static final int HEADER = 4 + 1 + 4;
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+    private final CRC32 crc = new CRC32();
+    private int bits;       // segments waiting to be written, and how many
+    private int bitCount;
+
+    /**
+     * Returns the number of bytes in a save of a puzzle of the given size.
+     */
+    public static int saveSize(int size)
+    {
+        return saveSize(size, VERSION);
+    }
+
+    /**
+     * Returns the number of bytes in a save of the given version of a puzzle of the given size.
+     */
+    private static int saveSize(int size, int version)
+    {
+        int segments = 2 * size * (size + 1);
+        int sets = version == 1 ? 2 : 3;    // grid and ON, and from version 2 OFF
+        return HEADER + (size * size + 1) / 2 + sets * ((segments + 7) / 8) + 8;
+    }
+
+    /**
+     * Saves p into the file at path, replacing anything already there.
+     * The save is written and flushed to disk in a temporary file beside path, which is then moved
+     * over it in one step, so a crash part way through leaves the previous save intact.
+     */
+    public void save(Puzzle p, Path path) throws IOException
+    {
+        ByteBuffer save = encode(p);
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (save.hasRemaining()) channel.write(save);
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns the save of p, ready to be read; the buffer is reused by the next call.
+     */
+    public ByteBuffer encode(Puzzle p)
+    {
+        int size = p.size();
+        int length = saveSize(size);
+        if (buffer.capacity() < length) buffer = ByteBuffer.allocateDirect(Math.max(length, 2 * buffer.capacity()));
+        buffer.clear();
+
+        buffer.putInt(MAGIC).put(VERSION).putInt(size);
+
+        // numbers, two per byte
+        int[][] puzzle = p.getPuzzle();
+        int pending = -1;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int number = puzzle[r][c] + 1;
+                if (pending < 0) {
+                    pending = number;
+                } else {
+                    buffer.put((byte) (pending << 4 | number));
+                    pending = -1;
+                }
+            }
+        }
+        if (pending >= 0) buffer.put((byte) (pending << 4));
+
+        // the grid of the puzzle, not what has been crossed out since, then the segments ON and OFF
+        PuzzleDefinition definition = p.getDefinition();
+        SolutionState state = p.getState();
+        putBits(definition.getGridHorizontalOffBits(), size, true);
+        putBits(definition.getGridVerticalOffBits(), size + 1, true);
+        flushBits();
+        putBits(state.getHorizontalBits(), size, false);
+        putBits(state.getVerticalBits(), size + 1, false);
+        flushBits();
+        putBits(state.getHorizontalOffBits(), size, false);
+        putBits(state.getVerticalOffBits(), size + 1, false);
+        flushBits();
+
+        crc.reset();
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        buffer.limit(buffer.capacity());
+        buffer.position(length - 8);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes rows of width bit-packed segments (as in SolutionState), one bit each, inverted if invert;
+     * a word at a time, filling the pending byte then writing whole bytes.
+     */
+    private void putBits(long[][] rows, int width, boolean invert)
+    {
+        for (long[] row : rows) {
+            for (int w = 0; w < row.length; w++) {
+                // the first segment becomes the most significant bit
+                long word = Long.reverse(invert ? ~row[w] : row[w]);
+                int count = Math.min(64, width - 64 * w);
+                while (count > 0) {
+                    int take = Math.min(8 - bitCount, count);
+                    bits = bits << take | (int) (word >>> (64 - take));
+                    word <<= take;
+                    count -= take;
+                    bitCount += take;
+                    if (bitCount == 8) {
+                        buffer.put((byte) bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes any segments left over, padding the last byte with zeros.
+     */
+    private void flushBits()
+    {
+        if (bitCount > 0) buffer.put((byte) (bits << (8 - bitCount)));
+        bits = 0;
+        bitCount = 0;
+    }
+
+    /**
+     * Restores the game saved in the file at path.
+     * Throws IOException if the file can't be read or isn't a valid save.
+     */
+    public static Puzzle load(Path path) throws IOException
+    {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Restores the game saved in save, from its position to its limit.
+     * Throws IOException if save isn't a valid save.
+     */
+    public static Puzzle decode(ByteBuffer save) throws IOException
+    {
+        if (save.remaining() < HEADER + 8) throw new IOException("Save is too short");
+        int start = save.position();
+        if (save.getInt() != MAGIC) throw new IOException("Not a Slither Link save");
+        int version = save.get();
+        if (version != 1 && version != VERSION) throw new IOException("Unknown save version");
+        int size = save.getInt();
+        if (size < 1 || size > 30000 || save.remaining() != saveSize(size, version) - HEADER) throw new IOException("Save has the wrong length");
+
+        ByteBuffer checked = save.duplicate();
+        checked.position(start).limit(save.limit() - 8);
+        CRC32 crc = new CRC32();
+        crc.update(checked);
+        if (crc.getValue() != save.getLong(save.limit() - 8)) throw new IOException("Save is corrupt");
+
+        int[][] puzzle = new int[size][size];
+        int packed = 0;
+        for (int i = 0; i < size * size; i++) {
+            if (i % 2 == 0) packed = save.get() & 0xff;
+            int number = (i % 2 == 0 ? packed >> 4 : packed & 0xf) - 1;
+            if (number < -1 || number > 3) throw new IOException("Save has an invalid number");
+            puzzle[i / size][i % size] = number;
+        }
+
+        boolean[][] gridHorizontal = new boolean[size + 1][size];
+        boolean[][] gridVertical = new boolean[size][size + 1];
+        getBits(save, gridHorizontal, gridVertical);
+        boolean[][] horizontal = new boolean[size + 1][size];
+        boolean[][] vertical = new boolean[size][size + 1];
+        getBits(save, horizontal, vertical);
+        boolean[][] horizontalOff = new boolean[size + 1][size];
+        boolean[][] verticalOff = new boolean[size][size + 1];
+        if (version > 1) {
+            getBits(save, horizontalOff, verticalOff);
+        } else {
+            // version 1 saves only have the grid's unusable segments OFF
+            for (int r = 0; r <= size; r++) {
+                for (int c = 0; c <= size; c++) {
+                    if (c < size) horizontalOff[r][c] = !gridHorizontal[r][c] && !horizontal[r][c];
+                    if (r < size) verticalOff[r][c] = !gridVertical[r][c] && !vertical[r][c];
+                }
+            }
+        }
+
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(puzzle, gridHorizontal, gridVertical));
+        SolutionState state = p.getState();
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                if (c < size) setState(state, true, r, c, horizontal[r][c], horizontalOff[r][c]);
+                if (r < size) setState(state, false, r, c, vertical[r][c], verticalOff[r][c]);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Puts segment r,c of state (a horizontal one if horizontal) into ON if on, OFF if off, or else UNKNOWN.
+     * Throws IOException if it is both.
+     */
+    private static void setState(SolutionState state, boolean horizontal, int r, int c, boolean on, boolean off) throws IOException
+    {
+        if (on && off) throw new IOException("Save has a segment both on and off");
+        byte value = on ? SolutionState.ON : off ? SolutionState.OFF : SolutionState.UNKNOWN;
+        if (horizontal) state.setHorizontalState(r, c, value);
+        else state.setVerticalState(r, c, value);
+    }
+
+    /**
+     * Reads the horizontal then vertical segments, one bit each.
+     */
+    private static void getBits(ByteBuffer save, boolean[][] horizontal, boolean[][] vertical)
+    {
+        int bits = 0;
+        int count = 0;
+        for (boolean[][] segments : new boolean[][][] {horizontal, vertical}) {
+            for (boolean[] row : segments) {
+                for (int i = 0; i < row.length; i++) {
+                    if (count == 0) {
+                        bits = save.get() & 0xff;
+                        count = 8;
+                    }
+                    row[i] = (bits & 0x80) != 0;
+                    bits <<= 1;
+                    count--;
+                }
+            }
+        }
+    }
+}
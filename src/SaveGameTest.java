@@ -0,0 +1,197 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+
+/**
+ * This class provides unit test cases for the SaveGame class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class SaveGameTest
+{
+    private Puzzle p;
+    private SaveGame saver;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        p = new Puzzle("eg5_2.txt");
+        p.horizontalClick(0, 1);
+        p.horizontalClick(5, 4);
+        p.verticalClick(2, 0);
+        p.verticalClick(4, 5);
+        saver = new SaveGame();
+    }
+
+    // Returns a copy of the bytes in save.
+    private ByteBuffer copy(ByteBuffer save)
+    {
+        ByteBuffer copy = ByteBuffer.allocate(save.remaining());
+        copy.put(save.duplicate()).flip();
+        return copy;
+    }
+
+    @Test
+    public void testroundTrip() throws IOException
+    {
+        ByteBuffer save = saver.encode(p);
+        assertEquals(SaveGame.saveSize(5), save.remaining());
+
+        Puzzle q = SaveGame.decode(copy(save));
+        assertTrue(q.getDefinition() == p.getDefinition());
+        assertTrue(java.util.Arrays.deepEquals(p.getHorizontal(), q.getHorizontal()));
+        assertTrue(java.util.Arrays.deepEquals(p.getVertical(), q.getVertical()));
+    }
+
+    @Test
+    public void testfile() throws IOException
+    {
+        Path path = Files.createTempFile("slitherlink", ".sav");
+        try {
+            saver.save(p, path);
+            assertEquals(SaveGame.saveSize(5), Files.size(path));
+
+            // a smaller game replaces a bigger one
+            saver.save(new Puzzle("eg3_1.txt"), path);
+            Puzzle q = SaveGame.load(path);
+            assertEquals(3, q.size());
+            assertTrue(java.util.Arrays.deepEquals(new Puzzle("eg3_1.txt").getGridVertical(), q.getGridVertical()));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testcrossedOut() throws IOException
+    {
+        // segments crossed out survive a save, along with those drawn
+        p.setHorizontalState(3, 2, SolutionState.OFF);
+        p.setVerticalState(1, 5, SolutionState.OFF);
+        Puzzle q = SaveGame.decode(copy(saver.encode(p)));
+        for (int r = 0; r <= 5; r++) {
+            for (int c = 0; c <= 5; c++) {
+                if (c < 5) assertEquals(p.getHorizontalState(r, c), q.getHorizontalState(r, c));
+                if (r < 5) assertEquals(p.getVerticalState(r, c), q.getVerticalState(r, c));
+            }
+        }
+        assertEquals(SolutionState.OFF, q.getHorizontalState(3, 2));
+
+        // a version 1 save, which has no OFF segments, still restores its lines
+        ByteBuffer save = copy(saver.encode(p));
+        int segmentBytes = (2 * 5 * 6 + 7) / 8;
+        ByteBuffer old = ByteBuffer.allocate(save.remaining() - segmentBytes);
+        ByteBuffer kept = save.duplicate();
+        kept.limit(save.limit() - 8 - segmentBytes);
+        old.put(kept);
+        old.put(4, (byte) 1);
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(old.array(), 0, old.position());
+        old.putLong(crc.getValue());
+        old.flip();
+        q = SaveGame.decode(old);
+        assertTrue(java.util.Arrays.deepEquals(p.getHorizontal(), q.getHorizontal()));
+        assertEquals(SolutionState.UNKNOWN, q.getHorizontalState(3, 2));
+    }
+
+    @Test
+    public void testatomic() throws IOException
+    {
+        Path directory = Files.createTempDirectory("slitherlink");
+        Path path = directory.resolve("slitherlink.sav");
+        try {
+            // nothing is left beside the save
+            saver.save(p, path);
+            saver.save(p, path);
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+
+            // a save that can't be put in place leaves the old one as it was, and no temporary file
+            Path blocked = directory.resolve("blocked");
+            Files.createDirectories(blocked.resolve("inside"));
+            try {
+                saver.save(p, blocked);
+                fail("saved over a directory");
+            } catch (IOException e) {
+                assertTrue(Files.isDirectory(blocked));
+            }
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+            Files.delete(blocked.resolve("inside"));
+            Files.delete(blocked);
+            assertTrue(SaveGame.load(path).getDefinition() == p.getDefinition());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testunseenPuzzle() throws IOException
+    {
+        // a definition nobody has loaded keeps the saved grid
+        int[][] numbers = {{3, -1, -1, -1}, {-1, -1, -1, -1}, {-1, -1, -1, -1}, {-1, -1, -1, 2}};
+        Puzzle fresh = new Puzzle(PuzzleDefinition.intern(numbers));
+        fresh.verticalClick(3, 4);
+        Puzzle q = SaveGame.decode(copy(saver.encode(fresh)));
+        assertEquals(2, q.getPuzzle()[3][3]);
+        assertEquals(true, q.getVertical()[3][4]);
+        assertTrue(java.util.Arrays.deepEquals(fresh.getGridHorizontal(), q.getGridHorizontal()));
+    }
+
+    @Test
+    public void testcorrupt()
+    {
+        ByteBuffer save = copy(saver.encode(p));
+        save.put(12, (byte) (save.get(12) ^ 1));
+        try {
+            SaveGame.decode(save);
+            fail("corruption not detected");
+        } catch (IOException e) {
+            assertEquals("Save is corrupt", e.getMessage());
+        }
+
+        try {
+            SaveGame.decode(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+            fail("short save not detected");
+        } catch (IOException e) {
+            assertEquals("Save is too short", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testresume() throws IOException
+    {
+        Path path = Files.createTempFile("slitherlink", ".sav");
+        try {
+            // the saved game is carried on only if it's of the same board
+            saver.save(p, path);
+            Puzzle q = SlitherLink.loadGame("eg5_2.txt", path);
+            assertTrue(q.getDefinition() == p.getDefinition());
+            assertTrue(java.util.Arrays.deepEquals(p.getHorizontal(), q.getHorizontal()));
+            assertFalse(SlitherLink.loadGame("eg5_1.txt", path).getHorizontal()[0][1]);
+
+            Files.delete(path);
+            assertFalse(SlitherLink.loadGame("eg5_2.txt", path).getHorizontal()[0][1]);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        try {
+            SlitherLink.loadGame("missing.txt", path);
+            fail("no board");
+        } catch (IllegalArgumentException e) {
+            assertEquals("No board in missing.txt", e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,15 @@
  * This is a stripped-down version of the Canvas class from the 
  * BlueJ team, retaining only the most fundamental features.
  * 
+ * Drawing between beginFrame() and endFrame() is recorded in a display list and
+ * drawn in one pass when the frame ends. Repaints are coalesced, so the window is
+ * repainted at most once every FRAME_MILLIS however many things are drawn.
+ * 
+ * An offscreen SimpleCanvas draws into an image with no window, so it can be used headless.
+ * 
+ * A window can be shown before its contents are known, and resized to suit them later;
+ * afterNextPaint() tells when something drawn has actually reached the screen.
+ * 
  * @author BlueJ team with modifications by Gordon Royle and Lyndon While
  * @version April 2019
  */
@@ -10,6 +19,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
+import java.awt.image.BufferedImage;
 
 public class SimpleCanvas
 {
@@ -19,6 +29,21 @@ public class SimpleCanvas
     private Image      canvasImage;
     private boolean    autoRepaint;
     
+    // repainting at most once a frame
+    public static final int FRAME_MILLIS = 16;
+    private Timer      repaintTimer;
+    private boolean    repaintPending;
+    private long       lastRepaint;
+    private Runnable   afterPaint;
+    
+    // the display list: for each primitive its kind and 4 coordinates, its colour and any text
+    private static final int LINE = 0, RECTANGLE = 1, DISC = 2, CIRCLE = 3, STRING = 4;
+    private int        frameDepth;
+    private int[]      ops = new int[5 * 256];
+    private Color[]    opColours = new Color[256];
+    private String[]   opTexts = new String[256];
+    private int        opCount;
+    
     /**
      * Creates and displays a SimpleCanvas of the specified size and background 
      */
@@ -31,16 +56,68 @@ public class SimpleCanvas
         frame.pack();
         Dimension size = canvas.getSize();
         canvasImage = canvas.createImage(size.width,size.height);
-        graphic = (Graphics2D) canvasImage.getGraphics();
-        graphic.setColor(bgColour);
-        graphic.fillRect(0,0,size.width,size.height);
-        graphic.setColor(Color.black);
-        this.autoRepaint = true;
+        initGraphic(size.width, size.height, bgColour);
+        repaintTimer = new Timer(FRAME_MILLIS, e -> repaintNow());
+        repaintTimer.setRepeats(false);
         frame.setVisible(true);
         
         // center window
         frame.setLocationRelativeTo(null);
         
+        // block resizing
+        frame.setResizable(false);
+    }
+    
+    /**
+     * Creates an offscreen SimpleCanvas of the specified size and background:
+     * it draws into an image, with no window, so it works headless.
+     */
+    public SimpleCanvas(int width, int height, Color bgColour) {
+        canvasImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        initGraphic(width, height, bgColour);
+    }
+    
+    /**
+     * Changes the size of this SimpleCanvas, clearing it to the background, and re-centres its window.
+     */
+    public synchronized void resize(int width, int height, Color bgColour) {
+        graphic.dispose();
+        if (frame == null) {
+            canvasImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        } else {
+            canvas.setPreferredSize(new Dimension(width,height));
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            canvasImage = canvas.createImage(width,height);
+        }
+        initGraphic(width, height, bgColour);
+    }
+    
+    /**
+     * Changes the title of the window.
+     */
+    public void setTitle(String title) {
+        if (frame != null) frame.setTitle(title);
+    }
+    
+    /**
+     * Runs r on the event dispatch thread once the window has next been painted.
+     * An offscreen canvas is never painted, so r is never run.
+     */
+    public synchronized void afterNextPaint(Runnable r) {
+        afterPaint = r;
+    }
+    
+    /**
+     * Fills the image with the background, and sets up the graphics used to draw on it.
+     */
+    private void initGraphic(int width, int height, Color bgColour) {
+        graphic = (Graphics2D) canvasImage.getGraphics();
+        graphic.setColor(bgColour);
+        graphic.fillRect(0,0,width,height);
+        graphic.setColor(Color.black);
+        this.autoRepaint = true;
+        
         // higher quality rendering
         graphic.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         graphic.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -50,9 +127,6 @@ public class SimpleCanvas
         graphic.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
         graphic.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         graphic.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-        
-        // block resizing
-        frame.setResizable(false);
     }
     
    /**
@@ -67,9 +141,10 @@ public class SimpleCanvas
      * Draws a line on this SimpleCanvas from x1,y1 to x2,y2 with colour c.
      */
     public void drawLine(int x1, int y1, int x2, int y2, Color c) {
+        if (record(LINE, x1, y1, x2, y2, c, null)) return;
         setForegroundColour(c);
         graphic.drawLine(x1, y1, x2, y2);
-        if (autoRepaint) canvas.repaint();
+        if (autoRepaint) requestRepaint();
     }
     
     /** 
@@ -84,38 +159,42 @@ public class SimpleCanvas
      * between x1,y1 and x2,y2 with colour c.
      */
     public void drawRectangle(int x1, int y1, int x2, int y2, Color c) {
+        if (record(RECTANGLE, x1, y1, x2, y2, c, null)) return;
         setForegroundColour(c);
         graphic.fillRect(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x1 - x2), Math.abs(y1 - y2));
-        if (autoRepaint) canvas.repaint();
+        if (autoRepaint) requestRepaint();
     }
     
     /** 
      * Draws a disc on this SimpleCanvas centred at x,y with radius r with colour c.
      */
     public void drawDisc(int x, int y, int r, Color c) {
+        if (record(DISC, x, y, r, 0, c, null)) return;
         int d = r*2;
         setForegroundColour(c);
         graphic.fillOval(x - r, y - r, d, d); 
-        if (autoRepaint) canvas.repaint();
+        if (autoRepaint) requestRepaint();
     }
     
     /** 
      * Draws a circle on this SimpleCanvas centred at x,y with radius r with colour c.
      */
     public void drawCircle(int x, int y, int r, Color c) {
+        if (record(CIRCLE, x, y, r, 0, c, null)) return;
         int d = r*2;
         setForegroundColour(c);
         graphic.drawOval(x - r, y - r, d, d); 
-        if (autoRepaint) canvas.repaint();
+        if (autoRepaint) requestRepaint();
     }
     
     /**
      * Writes the String text on this SimpleCanvas at x,y with colour c.
      */
     public void drawString(String text, int x, int y, Color c) {
+        if (record(STRING, x, y, 0, 0, c, text)) return;
         setForegroundColour(c);
         graphic.drawString(text, x, y);
-        if (autoRepaint) canvas.repaint();
+        if (autoRepaint) requestRepaint();
     }
     
     /**
@@ -144,6 +223,8 @@ public class SimpleCanvas
      */
     
     public void setFont(Font newFont) {
+        // Strings already recorded keep the font they were drawn with
+        flush();
         graphic.setFont(newFont);
     }
     
@@ -167,6 +248,110 @@ public class SimpleCanvas
      * this method can be used to cause a manual repaint.
      */
     public void repaint() {
+        if (canvas != null) canvas.repaint();
+    }
+    
+    /**
+     * Returns whether this SimpleCanvas draws offscreen, with no window.
+     */
+    public boolean isOffscreen() {
+        return frame == null;
+    }
+    
+    /**
+     * Returns the image drawn on; it is only up to date between frames.
+     */
+    public Image getImage() {
+        return canvasImage;
+    }
+    
+    /**
+     * Starts a frame: drawing is recorded, not shown, until the matching endFrame().
+     * Frames can be nested; only the outermost endFrame() draws.
+     */
+    public synchronized void beginFrame() {
+        frameDepth++;
+    }
+    
+    /**
+     * Ends a frame, drawing everything recorded since beginFrame() in one pass
+     * and then repainting once.
+     */
+    public synchronized void endFrame() {
+        if (frameDepth == 0 || --frameDepth > 0) return;
+        flush();
+        requestRepaint();
+    }
+    
+    /**
+     * Records a primitive if a frame is in progress; returns false if it should be drawn straight away.
+     */
+    private synchronized boolean record(int kind, int a, int b, int c, int d, Color colour, String text) {
+        if (frameDepth == 0) return false;
+        if (opCount == opColours.length) {
+            ops = java.util.Arrays.copyOf(ops, 2 * ops.length);
+            opColours = java.util.Arrays.copyOf(opColours, 2 * opColours.length);
+            opTexts = java.util.Arrays.copyOf(opTexts, 2 * opTexts.length);
+        }
+        int i = 5 * opCount;
+        ops[i] = kind;
+        ops[i + 1] = a;
+        ops[i + 2] = b;
+        ops[i + 3] = c;
+        ops[i + 4] = d;
+        opColours[opCount] = colour;
+        opTexts[opCount] = text;
+        opCount++;
+        return true;
+    }
+    
+    /**
+     * Draws the display list into the image, only changing colour when it has to, and empties it.
+     */
+    private synchronized void flush() {
+        Color current = null;
+        for (int k = 0; k < opCount; k++) {
+            int i = 5 * k;
+            int a = ops[i + 1], b = ops[i + 2], c = ops[i + 3], d = ops[i + 4];
+            if (opColours[k] != current) {
+                current = opColours[k];
+                graphic.setColor(current);
+            }
+            switch (ops[i]) {
+                case LINE:      graphic.drawLine(a, b, c, d); break;
+                case RECTANGLE: graphic.fillRect(Math.min(a, c), Math.min(b, d), Math.abs(a - c), Math.abs(b - d)); break;
+                case DISC:      graphic.fillOval(a - c, b - c, 2 * c, 2 * c); break;
+                case CIRCLE:    graphic.drawOval(a - c, b - c, 2 * c, 2 * c); break;
+                default:        graphic.drawString(opTexts[k], a, b);
+            }
+            opColours[k] = null;
+            opTexts[k] = null;
+        }
+        opCount = 0;
+    }
+    
+    /**
+     * Repaints the window now if it hasn't been repainted this frame, and otherwise once the frame is over.
+     */
+    private synchronized void requestRepaint() {
+        if (canvas == null || repaintPending) return;
+        long wait = lastRepaint + FRAME_MILLIS - System.currentTimeMillis();
+        if (wait <= 0) {
+            lastRepaint = System.currentTimeMillis();
+            canvas.repaint();
+        } else {
+            repaintPending = true;
+            repaintTimer.setInitialDelay((int) wait);
+            repaintTimer.restart();
+        }
+    }
+    
+    /**
+     * Does a repaint that was put off by requestRepaint().
+     */
+    private synchronized void repaintNow() {
+        repaintPending = false;
+        lastRepaint = System.currentTimeMillis();
         canvas.repaint();
     }
     
@@ -187,6 +372,7 @@ public class SimpleCanvas
      * Sets up this SimpleCanvas to respond to mouse input.
      */
     public void addMouseListener(MouseListener ml) {
+        if (canvas == null) return;
         canvas.addMouseListener(ml);
     }
     
@@ -194,12 +380,45 @@ public class SimpleCanvas
      * Sets up this SimpleCanvas to respond to mouse motion input.
      */
     public void addMouseMotionListener(MouseMotionListener mml) {
+        if (canvas == null) return;
         canvas.addMouseMotionListener(mml);
     }
     
+    /**
+     * Sets up this SimpleCanvas to respond to the mouse wheel.
+     */
+    public void addMouseWheelListener(MouseWheelListener mwl) {
+        if (canvas == null) return;
+        canvas.addMouseWheelListener(mwl);
+    }
+    
+    /**
+     * Sets up this SimpleCanvas to respond to the keyboard.
+     */
+    public void addKeyListener(KeyListener kl) {
+        if (canvas == null) return;
+        canvas.setFocusable(true);
+        canvas.addKeyListener(kl);
+        canvas.requestFocusInWindow();
+    }
+    
+    /**
+     * Sets up this SimpleCanvas to respond to its window being closed etc.
+     */
+    public void addWindowListener(WindowListener wl) {
+        if (frame == null) return;
+        frame.addWindowListener(wl);
+    }
+    
     class CanvasPane extends JPanel {
         public void paint(Graphics g) {
             g.drawImage(canvasImage,0,0,null);
+            Runnable r;
+            synchronized (SimpleCanvas.this) {
+                r = afterPaint;
+                afterPaint = null;
+            }
+            if (r != null) r.run();
         }
     }
 }
@@ -2,31 +2,50 @@
 /**
 * SlitherLink does the user interaction for a square Slither Link puzzle.
 *
+* A board too big for the window is shown through a Viewport: the mouse wheel (or + and -)
+* zooms, and dragging with the right or middle button (or the arrow keys) pans.
+* Only the squares on screen are drawn, so redrawing costs the same however big the board is.
+*
+* Each click is timed: updating the game, analysing it, and redrawing (see getClickNanos),
+* and can be recorded into a ClickTrace to be replayed later; see ClickReplay.
+*
+* launch() opens the window before the board is read: the board is read in the background
+* and drawn once it's ready, and all of the user interface is made on the event dispatch thread.
+*
 * @author Abdihafith Isse
 * @version 1.0
 */
 
 import java.awt.*;
 import java.awt.event.*;
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.concurrent.*;
 
-public class SlitherLink implements MouseListener
+public class SlitherLink implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener
 {
     // puzzle
     private Puzzle game;
     private boolean complete;
+    private RevealMask reveal;      // which numbers are shown
     
     // canvas
     private SimpleCanvas sc;
     
     // sizing
+    public static final int PLAYABLE_CELL_SIZE = 16;    // squares are never made smaller than this to fit the window
+    private static final int IDEAL_CELL_SIZE = 75;
+    private static final int MAX_WINDOW_SIZE = 600;
     private int windowSize;
-    private int windowPadding;
+    private Viewport viewport;
     
-    private int cellSize;
     private int lineSize;
     private int dotSize;
     
     // colours
+    private static final Color DARK_BACKGROUND = new Color(25, 25, 25, (int) (1.0 * 255));
     private Color backgroundColor;
     private Color gridColor;
     
@@ -43,38 +62,132 @@ public class SlitherLink implements MouseListener
     private Color completeColor;
     private Color fadedCompleteColor;
     
+    // timing and recording clicks
+    public static final int UPDATE = 0;     // the phases of a click, in getClickNanos()
+    public static final int ANALYSIS = 1;
+    public static final int RENDER = 2;
+    private final long[] clickNanos = new long[3];
+    private ClickTrace recorder;
+    
     // mouse
     private long lastOutOfBoundsClick = -1;
     private int lastOutOfBoundsX = -1;
     private int lastOutOfBoundsY = -1;
+    private int dragX = -1;         // where a pan last got to, while dragging
+    private int dragY = -1;
     
     /**
-     * Quick start.
+     * Quick start: java SlitherLink [board file].
      */
     public static void main(String[] args)
     {
-       
-        Puzzle puzzle = new Puzzle("eg5_2.txt");            // The parameter is the game board that will be initialised
-        SlitherLink slitherLink = new SlitherLink(puzzle);
+        String filename = args.length > 0 ? args[0] : "eg5_2.txt";     // the game board that will be initialised
+        launch(filename, Paths.get("slitherlink.sav"));
+    }
+    
+    /**
+     * Shows the game window straight away and reads the board from filename in the background, carrying on
+     * the game saved at savePath if it is of the same board; the board is drawn once it's ready, and saved
+     * into savePath when the window is closed. Prints how long the board took to reach the screen.
+     * Can be called from any thread: all of the user interface is made on the event dispatch thread.
+     */
+    public static void launch(String filename, Path savePath)
+    {
+        long start = System.nanoTime();
+        
+        // reading the board starts straight away, alongside opening the window
+        CompletableFuture<Puzzle> loading = CompletableFuture.supplyAsync(() -> loadGame(filename, savePath));
+        
+        SwingUtilities.invokeLater(() -> {
+            SimpleCanvas window = new SimpleCanvas("Slither Link", MAX_WINDOW_SIZE, MAX_WINDOW_SIZE, DARK_BACKGROUND);
+            window.drawString("Loading " + filename + "...", 20, MAX_WINDOW_SIZE / 2, Color.white);
+            
+            loading.whenComplete((puzzle, e) -> SwingUtilities.invokeLater(() -> {
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Couldn't load " + filename + ": " + cause);
+                    window.drawString("Couldn't load " + filename, 20, MAX_WINDOW_SIZE / 2 + 20, Color.white);
+                    return;
+                }
+                
+                window.afterNextPaint(() -> System.out.printf("First frame of the board after %d ms (%d ms since the JVM started)%n",
+                                                              (System.nanoTime() - start) / 1000000,
+                                                              ManagementFactory.getRuntimeMXBean().getUptime()));
+                SlitherLink slitherLink = new SlitherLink(puzzle, false, window);
+                slitherLink.saveOnClose(savePath);
+            }));
+        });
+    }
+    
+    /**
+     * Returns a new game of the board in filename or, if the file at savePath holds a game of the same board, that game.
+     * Throws IllegalArgumentException if filename doesn't hold a board.
+     */
+    public static Puzzle loadGame(String filename, Path savePath)
+    {
+        FileIO file = new FileIO(filename);
+        if (file.getLines() == null || file.getLines().isEmpty()) throw new IllegalArgumentException("No board in " + filename);
+        Puzzle puzzle = new Puzzle(file.getLines());
+        
+        // carry on from last time, if it was the same board
+        if (Files.exists(savePath)) {
+            try {
+                Puzzle saved = SaveGame.load(savePath);
+                if (saved.getDefinition() == puzzle.getDefinition()) puzzle = saved;
+            } catch (IOException e) {
+                System.err.println("Couldn't resume from " + savePath + ": " + e.getMessage());
+            }
+        }
+        return puzzle;
     }
     
     /**
      * Creates a display for playing the puzzle p.
      */
     public SlitherLink(Puzzle p)
+    {
+        this(p, false);
+    }
+    
+    /**
+     * Creates a display for playing the puzzle p, in a window or, if offscreen, drawn into an image
+     * with no window (which works headless).
+     */
+    public SlitherLink(Puzzle p, boolean offscreen)
+    {
+        this(p, offscreen, null);
+    }
+    
+    /**
+     * Creates a display for playing the puzzle p, in window if it isn't null (which is resized to suit p),
+     * or else in a new window or, if offscreen, drawn into an image.
+     */
+    private SlitherLink(Puzzle p, boolean offscreen, SimpleCanvas window)
     {
         game = p;
+        reveal = new RevealMask(game);
         
         // sizing
-        initSizing(75, 600);
+        initSizing(IDEAL_CELL_SIZE, MAX_WINDOW_SIZE);
         
         // colours
         theme("dark");       // Takes one of two parameter -- > dark or default
         
         // canvas
-        sc = new SimpleCanvas("Slither Link (" + game.size() + "x" + game.size() + ")", windowSize, windowSize, backgroundColor);
+        String title = "Slither Link (" + game.size() + "x" + game.size() + ")";
+        if (window != null) {
+            sc = window;
+            sc.setTitle(title);
+            sc.resize(windowSize, windowSize, backgroundColor);
+        }
+        else if (offscreen) sc = new SimpleCanvas(windowSize, windowSize, backgroundColor);
+        else sc = new SimpleCanvas(title, windowSize, windowSize, backgroundColor);
         sc.addMouseListener(this);
+        sc.addMouseMotionListener(this);
+        sc.addMouseWheelListener(this);
+        sc.addKeyListener(this);
         
+        complete = AnalyzeSolution.finished(game).equals("Finished");
         displayPuzzle();
     }
     
@@ -94,25 +207,58 @@ public class SlitherLink implements MouseListener
         return sc;
     }
     
+    /**
+     * Saves the game into the file at path when the window is closed.
+     */
+    public void saveOnClose(Path path)
+    {
+        sc.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                try {
+                    new SaveGame().save(game, path);
+                } catch (IOException ex) {
+                    System.err.println("Couldn't save to " + path + ": " + ex.getMessage());
+                }
+            }
+        });
+    }
+    
+    /**
+     * Returns the viewport the board is drawn through.
+     */
+    public Viewport getViewport()
+    {
+        return viewport;
+    }
+    
     /**
      * Calculates and sets pixel sizing values for the display.
      * Allows the window size to be any size below the set maximum.
      * To have a somewhat fixed window size, set a very high idealCellSize.
+     * A board that only fits with squares smaller than PLAYABLE_CELL_SIZE is shown in part, through the viewport.
      */
     public void initSizing(int idealCellSize, int maxWindowSize)
     {
-        cellSize = idealCellSize;
+        int cellSize = idealCellSize;
+        windowSize = cellSize * (game.size() + 2);
         
-        windowPadding = cellSize;
-        windowSize = (cellSize * game.size()) + (windowPadding * 2);
-        
-        lineSize = (int) Math.round((double) cellSize / 6.0);
-        dotSize = (int) Math.round((double) cellSize / 6.0);
-        
-        // recalculate if it's greater than the maximum size
+        // shrink the squares if it's greater than the maximum size, but no further than is playable
         if (windowSize > maxWindowSize) {
-            initSizing(maxWindowSize / (game.size() + 2), maxWindowSize);
+            cellSize = Math.max(PLAYABLE_CELL_SIZE, maxWindowSize / (game.size() + 2));
+            windowSize = Math.min(maxWindowSize, cellSize * (game.size() + 2));
         }
+        
+        viewport = new Viewport(game.size(), windowSize, windowSize, cellSize);
+        initLineSizes();
+    }
+    
+    /**
+     * Sets the line and dot sizes to suit the current size of the squares.
+     */
+    private void initLineSizes()
+    {
+        lineSize = Math.max(1, (int) Math.round((double) viewport.getCellSize() / 6.0));
+        dotSize = Math.max(2, (int) Math.round((double) viewport.getCellSize() / 6.0));
     }
     
     /**
@@ -139,7 +285,7 @@ public class SlitherLink implements MouseListener
         
         // dark theme
         if (name == "dark") {
-            backgroundColor = new Color(25, 25, 25, (int) (1.0 * 255));
+            backgroundColor = DARK_BACKGROUND;
             gridColor = new Color(50, 50, 50, (int) (1.0 * 255));
             
             numberColor = Color.white;
@@ -148,13 +294,13 @@ public class SlitherLink implements MouseListener
     }
     
     /**
-     * Displays the initial puzzle on sc.
+     * Displays the part of the puzzle in the viewport on sc.
      * Have a look at puzzle-loop.com for a basic display, or use your imagination.
      */
     public void displayPuzzle()
     {
-        // checks if the game has been completed
-        complete = AnalyzeSolution.finished(game) == "Finished" ? true : false;
+        // everything is drawn in one pass, with one repaint, at the end
+        sc.beginFrame();
         
         // plain white background
         sc.drawRectangle(0, 0, windowSize, windowSize, backgroundColor);
@@ -164,20 +310,22 @@ public class SlitherLink implements MouseListener
         drawGridLines(game.getHorizontal(), game.getVertical(), complete ? completeColor : correctColor);
         
         // cells (numbers as dots, highlighting, line errors etc..)
-        for (int r = 0; r < game.size(); r++) {
-            for (int c = 0; c < game.size(); c++) {
+        int lastRow = Math.min(viewport.lastRow(), game.size() - 1);
+        int lastColumn = Math.min(viewport.lastColumn(), game.size() - 1);
+        for (int r = viewport.firstRow(); r <= lastRow; r++) {
+            for (int c = viewport.firstColumn(); c <= lastColumn; c++) {
                 int requiredLines = game.getPuzzle()[r][c];
-                int drawnLines = AnalyzeSolution.linesAroundSquare(game, r, c);
-                int nearestDrawnLineDistance = AnalyzeSolution.nearestLineDistance(game, r, c);
                 
                 // blank
                 if (requiredLines == -1) continue;
                 
+                int drawnLines = AnalyzeSolution.linesAroundSquare(game, r, c);
+                
                 // default
                 if (drawnLines == 0) {
                     
                     // show the cell number (if they've drawn within 2 blocks of it)
-                    if (nearestDrawnLineDistance <= 2 && nearestDrawnLineDistance != -1) {
+                    if (reveal.isRevealed(r, c)) {
                         drawCellNumberWithDots(r, c, requiredLines, numberColor, 0);
                     
                     // hide the cell number
@@ -203,39 +351,19 @@ public class SlitherLink implements MouseListener
                 }
             }
         }
+        
+        sc.endFrame();
     }
         
     /**
-     * Draws grid lines in a certain color.
+     * Draws the grid lines in the viewport in a certain color.
      */
     public void drawGridLines(boolean[][] horizontal, boolean[][] vertical, Color color)
     {
-        for (int r = 0; r <= game.size(); r++) {
-            for (int c = 0; c <= game.size(); c++) {
-                
-                // horizontal line
-                if (c < game.size() && horizontal[r][c]) {
-                    drawThickLine(
-                        lineSize, // thickness
-                        (c * cellSize) + windowPadding, // x1
-                        (r * cellSize) + windowPadding, // y1
-                        ((c + 1) * cellSize) + windowPadding, // x2
-                        (r * cellSize) + windowPadding, // y2
-                        color // color
-                    );
-                }
-                
-                // vertical line
-                if (r < game.size() && vertical[r][c]) {
-                    drawThickLine(
-                        lineSize, // thickness
-                        (c * cellSize) + windowPadding, // x1
-                        (r * cellSize) + windowPadding, // y1
-                        (c * cellSize) + windowPadding, // x2
-                        ((r + 1) * cellSize) + windowPadding, // y2
-                        color // color
-                    );
-                }
+        for (int r = viewport.firstRow(); r <= viewport.lastRow(); r++) {
+            for (int c = viewport.firstColumn(); c <= viewport.lastColumn(); c++) {
+                if (c < game.size() && horizontal[r][c]) drawHorizontalLine(r, c, color);
+                if (r < game.size() && vertical[r][c]) drawVerticalLine(r, c, color);
             }
         }
     }
@@ -245,15 +373,41 @@ public class SlitherLink implements MouseListener
      */
     public void drawCellLines(int r, int c, Color color) 
     {
-        boolean[][] horizontal = new boolean[game.size() + 1][game.size()];
-        boolean[][] vertical = new boolean[game.size()][game.size() + 1];
-        
-        if (game.getHorizontal()[r][c]) horizontal[r][c] = true;
-        if (game.getVertical()[r][c]) vertical[r][c] = true;
-        if (game.getHorizontal()[r + 1][c]) horizontal[r + 1][c] = true;
-        if (game.getVertical()[r][c + 1]) vertical[r][c + 1] = true;
-        
-        drawGridLines(horizontal, vertical, color);
+        SolutionState state = game.getState();
+        if (state.isHorizontal(r, c)) drawHorizontalLine(r, c, color);
+        if (state.isVertical(r, c)) drawVerticalLine(r, c, color);
+        if (state.isHorizontal(r + 1, c)) drawHorizontalLine(r + 1, c, color);
+        if (state.isVertical(r, c + 1)) drawVerticalLine(r, c + 1, color);
+    }
+    
+    /**
+     * Draws the horizontal line to the right of Dot r,c in a certain color.
+     */
+    public void drawHorizontalLine(int r, int c, Color color)
+    {
+        drawThickLine(
+            lineSize, // thickness
+            viewport.x(c), // x1
+            viewport.y(r), // y1
+            viewport.x(c + 1), // x2
+            viewport.y(r), // y2
+            color // color
+        );
+    }
+    
+    /**
+     * Draws the vertical line below Dot r,c in a certain color.
+     */
+    public void drawVerticalLine(int r, int c, Color color)
+    {
+        drawThickLine(
+            lineSize, // thickness
+            viewport.x(c), // x1
+            viewport.y(r), // y1
+            viewport.x(c), // x2
+            viewport.y(r + 1), // y2
+            color // color
+        );
     }
     
     /**
@@ -270,8 +424,8 @@ public class SlitherLink implements MouseListener
         // draw the dots
         for (int i = 0; i < requiredLines && i < dotDrawLimit; i++) {
             sc.drawDisc(
-                windowPadding + (c * cellSize) + (int) Math.round(dotsAsNumbersPositions[requiredLines - 1][i][0] * (double) cellSize), // x
-                windowPadding + (r * cellSize) + (int) Math.round(dotsAsNumbersPositions[requiredLines - 1][i][1] * (double) cellSize), // y
+                viewport.x(c) + (int) Math.round(dotsAsNumbersPositions[requiredLines - 1][i][0] * (double) viewport.getCellSize()), // x
+                viewport.y(r) + (int) Math.round(dotsAsNumbersPositions[requiredLines - 1][i][1] * (double) viewport.getCellSize()), // y
                 dotSize / 2, // radius
                 color // color
             );
@@ -284,10 +438,10 @@ public class SlitherLink implements MouseListener
     public void highlightCell(int r, int c, Color color)
     {
         sc.drawRectangle(
-            (c * cellSize) + windowPadding - (lineSize / 2), // x1
-            (r * cellSize) + windowPadding - (lineSize / 2), // y1
-            ((c + 1) * cellSize) + windowPadding + (lineSize / 2), // x2
-            ((r + 1) * cellSize) + windowPadding + (lineSize / 2), // y2
+            viewport.x(c) - (lineSize / 2), // x1
+            viewport.y(r) - (lineSize / 2), // y1
+            viewport.x(c + 1) + (lineSize / 2), // x2
+            viewport.y(r + 1) + (lineSize / 2), // y2
             color // color
         );
     }
@@ -312,8 +466,10 @@ public class SlitherLink implements MouseListener
      */
     public void horizontalClick(int r, int c)
     {
+        long start = System.nanoTime();
         game.horizontalClick(r, c);
-        displayPuzzle();
+        if (validGridLine(false, r, c)) reveal.updateHorizontal(r, c);
+        timeClick(false, r, c, start);
     }
     
     /**
@@ -322,24 +478,61 @@ public class SlitherLink implements MouseListener
      */
     public void verticalClick(int r, int c)
     {
+        long start = System.nanoTime();
         game.verticalClick(r, c);
+        if (validGridLine(true, r, c)) reveal.updateVertical(r, c);
+        timeClick(true, r, c, start);
+    }
+    
+    /**
+     * Finishes a click that started at start and has updated the game: analyses the game and redraws it,
+     * timing each phase, and records the click if recording.
+     */
+    private void timeClick(boolean verticalLine, int r, int c, long start)
+    {
+        long updated = System.nanoTime();
+        complete = AnalyzeSolution.finished(game).equals("Finished");
+        long analysed = System.nanoTime();
         displayPuzzle();
+        long rendered = System.nanoTime();
+        
+        clickNanos[UPDATE] = updated - start;
+        clickNanos[ANALYSIS] = analysed - updated;
+        clickNanos[RENDER] = rendered - analysed;
+        if (recorder != null) recorder.add(verticalLine, r, c);
+    }
+    
+    /**
+     * Returns how long each phase (UPDATE, ANALYSIS and RENDER) of the last click took, in nanoseconds.
+     */
+    public long[] getClickNanos()
+    {
+        return clickNanos.clone();
+    }
+    
+    /**
+     * Records every click from now on into trace, or stops recording if trace is null.
+     */
+    public void setRecorder(ClickTrace trace)
+    {
+        recorder = trace;
     }
     
     /**
-     * Nearest line (x or y) to a given position.
+     * Distance to the nearest line (x or y) from a given position, where the lines start at origin.
      */
-    public int nearestGridLineDistance(int position)
+    public int nearestGridLineDistance(int position, int origin)
     {
-        return Math.abs((Math.abs(((position - windowPadding) % cellSize) - (cellSize / 2)) - (cellSize / 2)));
+        int cellSize = viewport.getCellSize();
+        return Math.abs((Math.abs(Math.floorMod(position - origin, cellSize) - (cellSize / 2)) - (cellSize / 2)));
     }
     
     /**
-     * Nearest line to a given position.
+     * Nearest line to a given position, where the lines start at origin.
      */
-    public int nearestGridLine(int position, boolean floor)
+    public int nearestGridLine(int position, int origin, boolean floor)
     {
-        float number = (position - windowPadding) / (float) cellSize;
+        float number = (position - origin) / (float) viewport.getCellSize();
         
         if (floor) return (int) Math.floor(number);
                    return (int) Math.round(number);
@@ -358,6 +551,8 @@ public class SlitherLink implements MouseListener
     public void clear()
     {
         game.clear();
+        reveal.reset();
+        complete = false;
         displayPuzzle();
     }
     
@@ -366,9 +561,18 @@ public class SlitherLink implements MouseListener
      */
     public void mousePressed(MouseEvent e)
     {
-        boolean verticalLine = nearestGridLineDistance(e.getX()) < nearestGridLineDistance(e.getY());
-        int r = nearestGridLine(e.getY(), verticalLine);
-        int c = nearestGridLine(e.getX(), !verticalLine);
+        // the right and middle buttons pan
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            dragX = e.getX();
+            dragY = e.getY();
+            return;
+        }
+        
+        int originX = viewport.getOriginX();
+        int originY = viewport.getOriginY();
+        boolean verticalLine = nearestGridLineDistance(e.getX(), originX) < nearestGridLineDistance(e.getY(), originY);
+        int r = nearestGridLine(e.getY(), originY, verticalLine);
+        int c = nearestGridLine(e.getX(), originX, !verticalLine);
         
         // out of bounds (and after completion) clicks
         if (!validGridLine(verticalLine, r, c) || complete) {
@@ -390,8 +594,62 @@ public class SlitherLink implements MouseListener
         if (verticalLine && game.getGridVertical()[r][c]) verticalClick(r, c);
         if (!verticalLine && game.getGridHorizontal()[r][c]) horizontalClick(r, c);
     }
+    
+    /**
+     * Pans while the right or middle button is dragged.
+     */
+    public void mouseDragged(MouseEvent e)
+    {
+        if (dragX < 0) return;
+        if (viewport.pan(e.getX() - dragX, e.getY() - dragY)) displayPuzzle();
+        dragX = e.getX();
+        dragY = e.getY();
+    }
+    
+    /**
+     * Zooms in or out around the mouse.
+     */
+    public void mouseWheelMoved(MouseWheelEvent e)
+    {
+        zoom(Math.pow(1.25, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+    }
+    
+    /**
+     * Pans with the arrow keys and zooms with + and -.
+     */
+    public void keyPressed(KeyEvent e)
+    {
+        int step = 4 * viewport.getCellSize();
+        boolean changed = false;
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT:  changed = viewport.pan(step, 0); break;
+            case KeyEvent.VK_RIGHT: changed = viewport.pan(-step, 0); break;
+            case KeyEvent.VK_UP:    changed = viewport.pan(0, step); break;
+            case KeyEvent.VK_DOWN:  changed = viewport.pan(0, -step); break;
+            case KeyEvent.VK_PLUS:
+            case KeyEvent.VK_EQUALS:
+            case KeyEvent.VK_ADD:   zoom(1.25, windowSize / 2, windowSize / 2); break;
+            case KeyEvent.VK_MINUS:
+            case KeyEvent.VK_SUBTRACT: zoom(0.8, windowSize / 2, windowSize / 2); break;
+        }
+        if (changed) displayPuzzle();
+    }
+    
+    /**
+     * Zooms by factor around screen position x,y, and redraws if anything changed.
+     */
+    public void zoom(double factor, int x, int y)
+    {
+        if (!viewport.zoom(factor, x, y)) return;
+        initLineSizes();
+        displayPuzzle();
+    }
+    
     public void mouseClicked(MouseEvent e) {}
-    public void mouseReleased(MouseEvent e) {}
+    public void mouseReleased(MouseEvent e) { dragX = -1; dragY = -1; }
     public void mouseEntered(MouseEvent e) {}
     public void mouseExited(MouseEvent e) {}
+    public void mouseMoved(MouseEvent e) {}
+    public void keyTyped(KeyEvent e) {}
+    public void keyReleased(KeyEvent e) {}
 }
@@ -0,0 +1,213 @@
+/**
+ * SolutionCache remembers the solutions of puzzles it has solved, so a board seen before,
+ * even rotated or mirrored, costs a hash lookup instead of a solve.
+ *
+ * Puzzles are keyed by their CanonicalForm hash. A solution is stored as which squares are
+ * inside the loop, in canonical orientation, because that turns with the board the same way
+ * the numbers do; it is turned back to the puzzle's own orientation when it is used.
+ * Puzzles with no solution are remembered too.
+ *
+ * The cache holds solutions for at most a given number of squares in total, and forgets
+ * the least recently used puzzles first. It is thread-safe; solving happens outside the lock.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class SolutionCache
+{
+    /**
+     * A remembered puzzle, and which of its squares are inside the loop (null if it has no solution).
+     */
+    private static class Entry
+    {
+        final CanonicalForm form;
+        final long[] inside;
+
+        Entry(CanonicalForm form, long[] inside)
+        {
+            this.form = form;
+            this.inside = inside;
+        }
+    }
+
+    private final long maxSquares;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long squares;       // the squares of every puzzle held
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding solutions for at most maxSquares squares in total.
+     */
+    public SolutionCache(long maxSquares)
+    {
+        this.maxSquares = maxSquares;
+    }
+
+    /**
+     * Draws a solution of p onto it, from the cache if p or any rotation or reflection
+     * of it has been seen before, and otherwise by solving it and remembering the result.
+     * Returns false, leaving p as it was, if p has no solution.
+     */
+    public boolean solve(Puzzle p)
+    {
+        return solve(p, 0) == Solver.Result.SOLVED;
+    }
+
+    /**
+     * Draws a solution of p onto it as solve(p) does, but gives up on a solve once budgetMillis
+     * have passed (0 for no limit). Returns Solver.Result.SOLVED, UNSOLVABLE if p has no solution,
+     * or UNSOLVED if the budget ran out; p is left as it was unless it was solved,
+     * and a puzzle that ran out of time isn't remembered.
+     */
+    public int solve(Puzzle p, long budgetMillis)
+    {
+        CanonicalForm form = new CanonicalForm(p.getPuzzle());
+        Entry entry = get(form);
+        if (entry == null) {
+            Solver solver = new Solver(p);
+            if (budgetMillis > 0) solver.setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+            long[] inside = null;
+            if (solver.solve()) {
+                solver.applyTo(p);
+                inside = pack(CanonicalForm.transform(inside(p), form.getTransform()));
+            } else if (solver.isStopped()) {
+                return Solver.Result.UNSOLVED;
+            }
+            put(new Entry(form, inside));
+            return inside != null ? Solver.Result.SOLVED : Solver.Result.UNSOLVABLE;
+        }
+
+        if (entry.inside == null) return Solver.Result.UNSOLVABLE;
+        int n = p.size();
+        boolean[][] inside = CanonicalForm.transform(unpack(entry.inside, n), CanonicalForm.inverse(form.getTransform()));
+        // a segment is on where it separates inside from outside; the lines are set a word at a time
+        SolutionState state = p.getState();
+        for (int r = 0; r <= n; r++) {
+            for (int w = 0; w < (n + 63) / 64; w++) {
+                long lines = 0;
+                for (int c = 64 * w; c < Math.min(n, 64 * w + 64); c++)
+                    if (isInside(inside, r - 1, c) != isInside(inside, r, c)) lines |= 1L << c;
+                state.setHorizontalLines(r, w, lines);
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            for (int w = 0; w < (n + 64) / 64; w++) {
+                long lines = 0;
+                for (int c = 64 * w; c < Math.min(n + 1, 64 * w + 64); c++)
+                    if (isInside(inside, r, c - 1) != isInside(inside, r, c)) lines |= 1L << c;
+                state.setVerticalLines(r, w, lines);
+            }
+        }
+        return Solver.Result.SOLVED;
+    }
+
+    /**
+     * Returns the remembered entry for form, or null.
+     */
+    private synchronized Entry get(CanonicalForm form)
+    {
+        Entry entry = entries.get(form.getHash());
+        if (entry == null || !entry.form.sameAs(form)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    /**
+     * Remembers entry, forgetting the least recently used puzzles if there isn't room.
+     */
+    private synchronized void put(Entry entry)
+    {
+        Entry old = entries.put(entry.form.getHash(), entry);
+        if (old != null) squares -= (long) old.form.size() * old.form.size();
+        squares += (long) entry.form.size() * entry.form.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (squares > maxSquares && eldest.hasNext()) {
+            Entry e = eldest.next();
+            squares -= (long) e.form.size() * e.form.size();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns which squares of p are inside the loop drawn on it.
+     */
+    private static boolean[][] inside(Puzzle p)
+    {
+        int n = p.size();
+        boolean[][] inside = new boolean[n][n];
+        boolean[][] vertical = p.getVertical();
+        for (int r = 0; r < n; r++) {
+            // crossing a vertical segment goes from outside to inside or back
+            boolean in = false;
+            for (int c = 0; c < n; c++) {
+                in ^= vertical[r][c];
+                inside[r][c] = in;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Returns whether Square r,c is inside; squares off the board are outside.
+     */
+    private static boolean isInside(boolean[][] inside, int r, int c)
+    {
+        return r >= 0 && r < inside.length && c >= 0 && c < inside.length && inside[r][c];
+    }
+
+    /**
+     * Packs a grid of flags into bits, row by row.
+     */
+    private static long[] pack(boolean[][] grid)
+    {
+        int n = grid.length;
+        long[] bits = new long[(n * n + 63) / 64];
+        for (int i = 0; i < n * n; i++)
+            if (grid[i / n][i % n]) bits[i >>> 6] |= 1L << i;
+        return bits;
+    }
+
+    /**
+     * Unpacks a grid of flags packed by pack.
+     */
+    private static boolean[][] unpack(long[] bits, int n)
+    {
+        boolean[][] grid = new boolean[n][n];
+        for (int i = 0; i < n * n; i++)
+            grid[i / n][i % n] = (bits[i >>> 6] & 1L << i) != 0;
+        return grid;
+    }
+
+    /**
+     * Returns the number of puzzles remembered.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of solves answered from the cache.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of solves that had to run the solver.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+}
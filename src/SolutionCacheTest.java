@@ -0,0 +1,70 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides unit test cases for the SolutionCache class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class SolutionCacheTest
+{
+    private SolutionCache cache;
+    private int[][] puzzle;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        cache = new SolutionCache(1000);
+        puzzle = new LoopGenerator(10, 5).getClues(0.7, 5);
+    }
+
+    @Test
+    public void testsymmetry()
+    {
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(puzzle));
+        assertTrue(cache.solve(p));
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+        assertEquals(0, cache.getHits());
+
+        // every rotation and reflection comes from the cache, mapped back correctly
+        for (int t = 0; t < CanonicalForm.TRANSFORMS; t++) {
+            Puzzle turned = new Puzzle(PuzzleDefinition.intern(CanonicalForm.transform(puzzle, t)));
+            turned.horizontalClick(0, 0);
+            assertTrue(cache.solve(turned));
+            assertEquals("Finished", AnalyzeSolution.finished(turned));
+        }
+        assertEquals(8, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testunsolvable()
+    {
+        int[][] impossible = {{3, 3, -1}, {3, -1, -1}, {-1, -1, 0}};
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(impossible));
+        assertFalse(cache.solve(p));
+        assertFalse(cache.solve(new Puzzle(PuzzleDefinition.intern(CanonicalForm.transform(impossible, 1)))));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testeviction()
+    {
+        // room for 10 boards of 10x10; the least recently used go first
+        for (long seed = 1; seed <= 12; seed++)
+            cache.solve(new Puzzle(PuzzleDefinition.intern(new LoopGenerator(10, seed).getClues())));
+        assertEquals(10, cache.size());
+        cache.solve(new Puzzle(PuzzleDefinition.intern(new LoopGenerator(10, 12).getClues())));
+        cache.solve(new Puzzle(PuzzleDefinition.intern(new LoopGenerator(10, 1).getClues())));
+        assertEquals(1, cache.getHits());
+        assertEquals(13, cache.getMisses());
+    }
+}
@@ -0,0 +1,460 @@
+/**
+ * SolutionCounter counts the solutions of a Slither Link puzzle exactly, by sweeping across
+ * the board one dot at a time (down each column of dots, then on to the next column) and
+ * keeping every possible state of the frontier: which of the lines crossing it are drawn, which
+ * of those are joined up behind it, and which squares just behind it still need their right-hand
+ * line. Boards that are solved the same way up to the frontier share a state, so the work grows
+ * with the height of the board (the frontier) and only linearly with its width, however few
+ * numbers the board has; this is what makes it practical for certifying that a board has one
+ * solution. The frontier runs across the shorter side of the board, which can be at most MAX_WIDTH.
+ *
+ * Each state is packed into a long: a label for each line crossing the frontier (lines with the
+ * same label are the two ends of one path), numbered in order of appearance so that equivalent
+ * states are equal; then a bit for each numbered square waiting for its right-hand line; then
+ * whether the loop has been closed. States are kept in a hash table of primitive arrays, whose
+ * size is capped by a memory limit. Counts too big for a long carry on as BigIntegers.
+ *
+ * One solution (a witness) can also be kept, at a few bytes per state; see setWitness.
+ *
+ * Usage: java SolutionCounter [puzzle file]...
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class SolutionCounter
+{
+    public static final int MAX_WIDTH = 13;     // the most squares across the frontier that a state has room for
+    private static final long EMPTY = -1L;      // no state uses every bit
+
+    /**
+     * The states after some number of dots, with their counts and, if wanted, a witness each.
+     */
+    private static final class StateMap
+    {
+        private long[] keys;
+        private long[] counts;
+        private BigInteger[] bigCounts;     // null until a count won't fit in a long
+        private int[] witnesses;            // the node of a solution reaching each state, or null
+        private int size;
+
+        StateMap(int capacity, boolean witness)
+        {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            counts = new long[capacity];
+            if (witness) witnesses = new int[capacity];
+        }
+
+        /**
+         * Returns the count of the state in slot i.
+         */
+        BigInteger count(int i)
+        {
+            return bigCounts != null && bigCounts[i] != null ? bigCounts[i] : BigInteger.valueOf(counts[i]);
+        }
+
+        /**
+         * Adds the count of slot i of from to state key, which a solution reaches through witness node.
+         */
+        void add(long key, StateMap from, int i, int node)
+        {
+            if (2 * (size + 1) > keys.length) grow();
+            int slot = find(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+                if (witnesses != null) witnesses[slot] = node;
+            }
+
+            boolean big = from.bigCounts != null && from.bigCounts[i] != null;
+            if (!big && (bigCounts == null || bigCounts[slot] == null)) {
+                long sum = counts[slot] + from.counts[i];
+                // overflow only if both are the same sign and the sum isn't
+                if (((counts[slot] ^ sum) & (from.counts[i] ^ sum)) >= 0) {
+                    counts[slot] = sum;
+                    return;
+                }
+            }
+            if (bigCounts == null) bigCounts = new BigInteger[keys.length];
+            bigCounts[slot] = count(slot).add(from.count(i));
+        }
+
+        private int find(long key)
+        {
+            int mask = keys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 33) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void grow()
+        {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            BigInteger[] oldBig = bigCounts;
+            int[] oldWitnesses = witnesses;
+            keys = new long[2 * oldKeys.length];
+            Arrays.fill(keys, EMPTY);
+            counts = new long[keys.length];
+            bigCounts = oldBig == null ? null : new BigInteger[keys.length];
+            witnesses = oldWitnesses == null ? null : new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                if (oldBig != null) bigCounts[slot] = oldBig[i];
+                if (oldWitnesses != null) witnesses[slot] = oldWitnesses[i];
+            }
+        }
+    }
+
+    private final int rows;             // the squares across the frontier
+    private final int columns;          // the squares the frontier sweeps over
+    private final int[][] clues;        // clues[r][c], with the frontier running down the columns
+    private final boolean transposed;   // whether clues is the puzzle on its side
+    private final int labelBits;        // the bits in each label
+    private final long memoryLimit;     // the most bytes the states and witness may take
+
+    private boolean witness;
+    private int[] nodeParent;           // the witness: for each node, the node before it,
+    private byte[] nodeChoice;          // and the lines drawn at its dot (1 for down, 2 for right)
+    private int nodeCount;
+
+    private BigInteger count;
+    private boolean[][] horizontal;     // the witness, as the puzzle's horizontal and vertical segments
+    private boolean[][] vertical;
+    private int peakStates;
+
+    /**
+     * Creates a counter for the puzzle p.
+     * Throws IllegalArgumentException if p is more than MAX_WIDTH squares across.
+     */
+    public SolutionCounter(Puzzle p)
+    {
+        this(p.getPuzzle());
+    }
+
+    /**
+     * Creates a counter for a board of clues (clues[r][c], -1 for none), which needn't be square.
+     * Throws IllegalArgumentException if the board is more than MAX_WIDTH squares across both ways.
+     */
+    public SolutionCounter(int[][] clues)
+    {
+        this(clues, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Creates a counter for a board of clues that uses at most about memoryLimit bytes for its states.
+     * Throws IllegalArgumentException if the board is more than MAX_WIDTH squares across both ways.
+     */
+    public SolutionCounter(int[][] clues, long memoryLimit)
+    {
+        int height = clues.length;
+        int width = height == 0 ? 0 : clues[0].length;
+        if (Math.min(height, width) > MAX_WIDTH) {
+            throw new IllegalArgumentException("A " + height + "x" + width + " board is too big to count; one side can be at most " + MAX_WIDTH);
+        }
+
+        // the frontier runs across the shorter side
+        transposed = height > width;
+        rows = transposed ? width : height;
+        columns = transposed ? height : width;
+        this.clues = new int[rows][columns];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < columns; c++)
+                this.clues[r][c] = transposed ? clues[c][r] : clues[r][c];
+
+        labelBits = 32 - Integer.numberOfLeadingZeros((rows + 2) / 2);
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Sets whether count() keeps one solution, which getHorizontal and getVertical then return.
+     */
+    public void setWitness(boolean witness)
+    {
+        this.witness = witness;
+    }
+
+    /**
+     * Counts the solutions. Returns false if that would take more memory than the limit.
+     */
+    public boolean count()
+    {
+        count = null;
+        horizontal = null;
+        vertical = null;
+        peakStates = 0;
+        nodeCount = 0;
+        if (witness) {
+            nodeParent = new int[1024];
+            nodeChoice = new byte[1024];
+            newNode(-1, 0);
+        }
+
+        int slots = rows + 2;       // a line leaving each dot of the frontier to the right, and one going down from the dot just done
+        int[] labels = new int[slots];
+        int[] next = new int[slots];
+        int[] renumber = new int[2 * slots + 2];
+
+        StateMap states = new StateMap(16, witness);
+        states.add(0, single(), 0, 0);
+        for (int x = 0; x <= columns; x++) {
+            for (int r = 0; r <= rows; r++) {
+                StateMap after = new StateMap(16, witness);
+                for (int i = 0; i < states.keys.length; i++) {
+                    long key = states.keys[i];
+                    if (key == EMPTY) continue;
+                    int need = unpack(key, labels);
+                    boolean closed = (key >>> closedShift() & 1) != 0;
+
+                    for (int down = 0; down <= (r < rows ? 1 : 0); down++) {
+                        for (int right = 0; right <= (x < columns ? 1 : 0); right++) {
+                            long result = step(labels, need, closed, r, x, down, right, next, renumber);
+                            if (result == EMPTY) continue;
+                            int node = witness ? newNode(states.witnesses[i], down | right << 1) : 0;
+                            after.add(result, states, i, node);
+                        }
+                    }
+                }
+                states = after;
+                peakStates = Math.max(peakStates, states.size);
+                if (memory(states) > memoryLimit) return false;
+            }
+        }
+
+        // only states that closed the loop are solutions
+        count = BigInteger.ZERO;
+        for (int i = 0; i < states.keys.length; i++) {
+            if (states.keys[i] == EMPTY || (states.keys[i] >>> closedShift() & 1) == 0) continue;
+            count = count.add(states.count(i));
+            if (witness && horizontal == null) buildWitness(states.witnesses[i]);
+        }
+        nodeParent = null;
+        nodeChoice = null;
+        return true;
+    }
+
+    /**
+     * Returns a map holding only a count of 1 for the empty state.
+     */
+    private StateMap single()
+    {
+        StateMap map = new StateMap(2, false);
+        map.keys[0] = 0;
+        map.counts[0] = 1;
+        return map;
+    }
+
+    /**
+     * Returns the state after Dot r,x (down column x) draws the lines down and right (1 for a line),
+     * from the state with labels, need and closed; or EMPTY if that breaks a rule.
+     */
+    private long step(int[] labels, int need, boolean closed, int r, int x, int down, int right, int[] next, int[] renumber)
+    {
+        int downSlot = rows + 1;
+        int left = labels[r];
+        int up = labels[downSlot];
+        int degree = (left != 0 ? 1 : 0) + (up != 0 ? 1 : 0) + down + right;
+        if (degree != 0 && degree != 2) return EMPTY;
+        if (closed && degree != 0) return EMPTY;
+
+        // the square left of the line down is waiting to know if it's there
+        if (x > 0 && r < rows) {
+            if (clues[r][x - 1] >= 0 && (need >> r & 1) != down) return EMPTY;
+            need &= ~(1 << r);
+        }
+        // the square above the line right now knows its other three lines
+        if (r > 0 && x < columns && clues[r - 1][x] >= 0) {
+            int remaining = clues[r - 1][x] - (labels[r - 1] != 0 ? 1 : 0) - (up != 0 ? 1 : 0) - right;
+            if (remaining < 0 || remaining > 1) return EMPTY;
+            need |= remaining << (r - 1);
+        }
+
+        System.arraycopy(labels, 0, next, 0, labels.length);
+        boolean nowClosed = closed;
+        if (left != 0 && up != 0) {
+            if (left == up) {
+                // closing the loop is only allowed if nothing else is drawn
+                for (int i = 0; i < labels.length; i++)
+                    if (i != r && i != downSlot && labels[i] != 0) return EMPTY;
+                nowClosed = true;
+            } else {
+                // two paths join, so their other ends are now the ends of one path
+                for (int i = 0; i < next.length; i++)
+                    if (next[i] == up) next[i] = left;
+            }
+            next[r] = 0;
+            next[downSlot] = 0;
+        } else if (left != 0 || up != 0) {
+            next[r] = right == 1 ? left | up : 0;
+            next[downSlot] = down == 1 ? left | up : 0;
+        } else {
+            // a new path starts here if both lines are drawn
+            next[r] = right == 1 ? 2 * labels.length : 0;
+            next[downSlot] = down == 1 ? 2 * labels.length : 0;
+        }
+        return pack(next, need, nowClosed, renumber);
+    }
+
+    /**
+     * Returns the state with labels (renumbered in order of appearance), need and closed, packed into a long.
+     */
+    private long pack(int[] labels, int need, boolean closed, int[] renumber)
+    {
+        Arrays.fill(renumber, 0);
+        int used = 0;
+        long key = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int label = labels[i];
+            if (label != 0 && renumber[label] == 0) renumber[label] = ++used;
+            key |= (long) (label == 0 ? 0 : renumber[label]) << (i * labelBits);
+        }
+        key |= (long) need << (labels.length * labelBits);
+        if (closed) key |= 1L << closedShift();
+        return key;
+    }
+
+    /**
+     * Unpacks the labels of state key into labels, and returns its need bits.
+     */
+    private int unpack(long key, int[] labels)
+    {
+        long mask = (1L << labelBits) - 1;
+        for (int i = 0; i < labels.length; i++) labels[i] = (int) (key >>> (i * labelBits) & mask);
+        return (int) (key >>> (labels.length * labelBits) & ((1L << rows) - 1));
+    }
+
+    private int closedShift()
+    {
+        return (rows + 2) * labelBits + rows;
+    }
+
+    /**
+     * Returns roughly how many bytes the states and the witness take.
+     */
+    private long memory(StateMap states)
+    {
+        long perSlot = 16 + (witness ? 4 : 0) + (states.bigCounts != null ? 8 : 0);
+        return 2 * perSlot * states.keys.length + 5L * nodeCount;
+    }
+
+    /**
+     * Adds a witness node following parent, whose dot drew the lines in choice; returns the node.
+     */
+    private int newNode(int parent, int choice)
+    {
+        if (nodeCount == nodeParent.length) {
+            nodeParent = Arrays.copyOf(nodeParent, 2 * nodeCount);
+            nodeChoice = Arrays.copyOf(nodeChoice, 2 * nodeCount);
+        }
+        nodeParent[nodeCount] = parent;
+        nodeChoice[nodeCount] = (byte) choice;
+        return nodeCount++;
+    }
+
+    /**
+     * Turns the witness ending at node into the lines of the puzzle.
+     */
+    private void buildWitness(int node)
+    {
+        int height = transposed ? columns : rows;
+        int width = transposed ? rows : columns;
+        horizontal = new boolean[height + 1][width];
+        vertical = new boolean[height][width + 1];
+
+        // the dots were done down each column in turn, so the last node is the last dot
+        for (int dot = (columns + 1) * (rows + 1) - 1; dot >= 0; dot--) {
+            int r = dot % (rows + 1);
+            int x = dot / (rows + 1);
+            int choice = nodeChoice[node];
+            node = nodeParent[node];
+            if ((choice & 1) != 0) {
+                if (transposed) horizontal[x][r] = true;
+                else vertical[r][x] = true;
+            }
+            if ((choice & 2) != 0) {
+                if (transposed) vertical[x][r] = true;
+                else horizontal[r][x] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of solutions, or null if they haven't been counted.
+     */
+    public BigInteger getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns whether the puzzle has been counted, and has exactly one solution.
+     */
+    public boolean isUnique()
+    {
+        return BigInteger.ONE.equals(count);
+    }
+
+    /**
+     * Returns the horizontal segments of a solution, or null if none was kept.
+     */
+    public boolean[][] getHorizontal()
+    {
+        return horizontal;
+    }
+
+    /**
+     * Returns the vertical segments of a solution, or null if none was kept.
+     */
+    public boolean[][] getVertical()
+    {
+        return vertical;
+    }
+
+    /**
+     * Replaces the current solution in p with the solution kept, if there is one.
+     */
+    public void applyTo(Puzzle p)
+    {
+        if (horizontal == null) return;
+        SolutionState state = p.getState();
+        for (int r = 0; r < horizontal.length; r++)
+            for (int c = 0; c < horizontal[r].length; c++)
+                state.setHorizontal(r, c, horizontal[r][c]);
+        for (int r = 0; r < vertical.length; r++)
+            for (int c = 0; c < vertical[r].length; c++)
+                state.setVertical(r, c, vertical[r][c]);
+    }
+
+    /**
+     * Returns the most states there were at once during the last count.
+     */
+    public int getPeakStates()
+    {
+        return peakStates;
+    }
+
+    /**
+     * Counts the solutions of each puzzle file given.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length == 0) {
+            System.err.println("Usage: java SolutionCounter [puzzle file]...");
+            System.exit(1);
+        }
+        for (String file : args) {
+            long start = System.nanoTime();
+            SolutionCounter counter = new SolutionCounter(new Puzzle(file));
+            boolean counted = counter.count();
+            System.out.printf("%s: %s solutions, %d states at most, %.2fs%n", file, counted ? counter.getCount() : "too many states to count",
+                              counter.getPeakStates(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
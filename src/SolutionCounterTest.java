@@ -0,0 +1,209 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class provides unit test cases for the SolutionCounter class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class SolutionCounterTest
+{
+    private Random random;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        random = new Random(11);
+    }
+
+    // Returns a rows x columns board with no numbers.
+    private int[][] blank(int rows, int columns)
+    {
+        int[][] clues = new int[rows][columns];
+        for (int[] row : clues) Arrays.fill(row, -1);
+        return clues;
+    }
+
+    // Returns the number of solutions of a small board, by trying every set of squares inside the loop:
+    // a set makes one loop if it and the squares outside it are each connected, and no two squares
+    // inside (or outside) touch only at a corner.
+    private int bruteCount(int[][] clues)
+    {
+        int rows = clues.length;
+        int columns = clues[0].length;
+        int count = 0;
+        for (int set = 1; set < 1 << (rows * columns); set++) {
+            boolean[][] inside = new boolean[rows + 2][columns + 2];
+            for (int i = 0; i < rows * columns; i++) inside[i / columns + 1][i % columns + 1] = (set >> i & 1) != 0;
+            if (connected(inside, true) && connected(inside, false) && !pinched(inside) && matches(inside, clues)) count++;
+        }
+        return count;
+    }
+
+    // Returns whether the squares with the given insideness are connected (the border counts as outside).
+    private boolean connected(boolean[][] inside, boolean which)
+    {
+        int rows = inside.length;
+        int columns = inside[0].length;
+        boolean[][] seen = new boolean[rows][columns];
+        int[] stack = new int[rows * columns];
+        int top = 0;
+        int total = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (inside[r][c] != which) continue;
+                if (total++ == 0) {
+                    seen[r][c] = true;
+                    stack[top++] = r * columns + c;
+                }
+            }
+        }
+
+        int reached = 0;
+        while (top > 0) {
+            int cell = stack[--top];
+            reached++;
+            int r = cell / columns;
+            int c = cell % columns;
+            int[][] steps = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+            for (int[] step : steps) {
+                int nr = r + step[0];
+                int nc = c + step[1];
+                if (nr < 0 || nc < 0 || nr >= rows || nc >= columns || seen[nr][nc] || inside[nr][nc] != which) continue;
+                seen[nr][nc] = true;
+                stack[top++] = nr * columns + nc;
+            }
+        }
+        return reached == total;
+    }
+
+    // Returns whether some dot has four lines: two squares diagonally inside, and the other two outside.
+    private boolean pinched(boolean[][] inside)
+    {
+        for (int r = 0; r + 1 < inside.length; r++)
+            for (int c = 0; c + 1 < inside[0].length; c++)
+                if (inside[r][c] == inside[r + 1][c + 1] && inside[r + 1][c] == inside[r][c + 1] && inside[r][c] != inside[r][c + 1]) return true;
+        return false;
+    }
+
+    // Returns whether every number counts the lines round its square.
+    private boolean matches(boolean[][] inside, int[][] clues)
+    {
+        for (int r = 0; r < clues.length; r++) {
+            for (int c = 0; c < clues[0].length; c++) {
+                if (clues[r][c] < 0) continue;
+                boolean in = inside[r + 1][c + 1];
+                int lines = (inside[r][c + 1] != in ? 1 : 0) + (inside[r + 2][c + 1] != in ? 1 : 0)
+                          + (inside[r + 1][c] != in ? 1 : 0) + (inside[r + 1][c + 2] != in ? 1 : 0);
+                if (lines != clues[r][c]) return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testblank()
+    {
+        // the number of loops in a grid of dots
+        long[] loops = {1, 13, 213, 9349, 1222363, 487150371, 603841648931L};
+        for (int n = 1; n <= loops.length; n++) {
+            SolutionCounter counter = new SolutionCounter(blank(n, n));
+            assertTrue(counter.count());
+            assertEquals(BigInteger.valueOf(loops[n - 1]), counter.getCount());
+        }
+        assertEquals(BigInteger.valueOf(213), BigInteger.valueOf(bruteCount(blank(3, 3))));
+
+        // a strip 1 square high has a loop for every run of squares, whichever way up it is
+        SolutionCounter strip = new SolutionCounter(blank(1, 30));
+        strip.count();
+        assertEquals(BigInteger.valueOf(30 * 31 / 2), strip.getCount());
+        strip = new SolutionCounter(blank(30, 1));
+        strip.count();
+        assertEquals(BigInteger.valueOf(30 * 31 / 2), strip.getCount());
+    }
+
+    @Test
+    public void testbrute()
+    {
+        // random numbers on small boards, of every shape
+        for (int trial = 0; trial < 60; trial++) {
+            int rows = 1 + random.nextInt(4);
+            int columns = 1 + random.nextInt(4);
+            int[][] clues = blank(rows, columns);
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < columns; c++)
+                    if (random.nextInt(3) == 0) clues[r][c] = random.nextInt(4);
+
+            SolutionCounter counter = new SolutionCounter(clues);
+            assertTrue(counter.count());
+            assertEquals(Arrays.deepToString(clues), BigInteger.valueOf(bruteCount(clues)), counter.getCount());
+        }
+    }
+
+    @Test
+    public void testunique()
+    {
+        String[] boards = {"eg3_1.txt", "eg5_1.txt", "eg5_2.txt", "eg7_1.txt", "eg7_2.txt", "eg10_1.txt"};
+        for (String board : boards) {
+            Puzzle p = new Puzzle(board);
+            SolutionCounter counter = new SolutionCounter(p);
+            counter.setWitness(true);
+            assertTrue(counter.count());
+            assertTrue(board, counter.isUnique());
+
+            // the witness is the solution
+            counter.applyTo(p);
+            assertEquals(board, "Finished", AnalyzeSolution.finished(p));
+        }
+        assertEquals(BigInteger.valueOf(2), countOf(new Puzzle("eg2_2.txt")));
+    }
+
+    // Returns the number of solutions of p.
+    private BigInteger countOf(Puzzle p)
+    {
+        SolutionCounter counter = new SolutionCounter(p);
+        assertTrue(counter.count());
+        return counter.getCount();
+    }
+
+    @Test
+    public void testlimits()
+    {
+        // counts too big for a long
+        SolutionCounter counter = new SolutionCounter(blank(9, 9));
+        assertTrue(counter.count());
+        assertEquals(new BigInteger("27359264067916806101"), counter.getCount());
+
+        // a witness on a board with many solutions is one of them
+        int[][] clues = new LoopGenerator(12, 4).getClues(0.3, 4);
+        counter = new SolutionCounter(clues);
+        counter.setWitness(true);
+        assertTrue(counter.count());
+        assertTrue(counter.getCount().compareTo(BigInteger.ONE) > 0);
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(clues));
+        counter.applyTo(p);
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+
+        // too little memory
+        counter = new SolutionCounter(blank(10, 10), 10000);
+        assertFalse(counter.count());
+        assertEquals(null, counter.getCount());
+
+        try {
+            new SolutionCounter(blank(14, 14));
+            fail("too wide");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("14x14"));
+        }
+    }
+}
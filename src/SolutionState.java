@@ -0,0 +1,551 @@
+/**
+ * SolutionState holds the line segments a player has drawn on a Slither Link puzzle.
+ * It is the only part of a game that changes, so it is all that each game owns;
+ * the numbers are shared through PuzzleDefinition.
+ *
+ * Each segment is in one of three states: ON (a line is drawn), OFF (crossed out, so no
+ * line can go there) or UNKNOWN. The state is kept as two bits per segment, in two bit-packed
+ * planes: one for ON and one for OFF, 64 segments to a long (segment c is bit c % 64 of
+ * word c / 64), so whole rows can be checked or changed at once; see AnalyzeSolution.badSquareMask.
+ * A new game starts with the segments its grid can't use OFF, and the rest UNKNOWN.
+ * The boolean arrays of lines (getHorizontal) and of usable grid lines (getGridHorizontal)
+ * are views made from the planes when asked for.
+ *
+ * Rows are copy-on-write: fork() shares every row with the copy, and a row is only
+ * copied when one side changes it. This makes snapshots for undo, hint previews and
+ * search branches cheap. The arrays returned by the getters must not be modified.
+ * The boolean arrays show the solution as it was when they were fetched.
+ *
+ * A listener can be told about each change; see setListener.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class SolutionState
+{
+    // segment states
+    public static final byte UNKNOWN = 0;
+    public static final byte ON = 1;
+    public static final byte OFF = 2;
+
+    /**
+     * Told about each change to the segments of a state.
+     */
+    public interface EdgeListener
+    {
+        /**
+         * Called when segments in row r changed: segment 64 * w + b for each bit b set in changed.
+         * The segments are horizontal ones if horizontal is true, vertical ones otherwise.
+         */
+        void edgesChanged(boolean horizontal, int r, int w, long changed);
+    }
+
+    /**
+     * One bit for each segment in one direction, in copy-on-write rows, along with the same
+     * bits as booleans (inverted, for the OFF plane, so they read as the usable grid lines).
+     * The boolean rows are only made when asked for.
+     */
+    private static final class Plane
+    {
+        private final int width;        // the segments in a row
+        private final boolean inverted;
+        private long[][] bits;
+        private boolean[] ownRows;      // which rows may be changed in place
+                                        // null if the row arrays themselves are shared
+        private boolean[][] view;       // the bits as booleans, null rows not yet made
+                                        // every plane sharing view has the same bits
+        private boolean ownView;        // false once view is shared with a copy or a caller
+        private boolean stale;          // whether view may have null rows
+
+        /**
+         * Creates a plane of rows by width segments, all clear.
+         */
+        Plane(int rows, int width, boolean inverted)
+        {
+            this.width = width;
+            this.inverted = inverted;
+            bits = new long[rows][(width + 63) / 64];
+            ownRows = new boolean[rows];
+            Arrays.fill(ownRows, true);
+            view = new boolean[rows][];
+            ownView = true;
+            stale = true;
+        }
+
+        /**
+         * Creates a plane sharing bits, and view, which holds the same bits as booleans.
+         */
+        Plane(long[][] bits, boolean[][] view, int width, boolean inverted)
+        {
+            this.width = width;
+            this.inverted = inverted;
+            this.bits = bits;
+            this.view = view;
+        }
+
+        /**
+         * Returns a copy of the plane, sharing all its rows.
+         */
+        Plane copy()
+        {
+            ownRows = null;
+            ownView = false;
+            Plane copy = new Plane(bits, view, width, inverted);
+            copy.stale = stale;
+            return copy;
+        }
+
+        boolean get(int r, int c)
+        {
+            return (bits[r][c >>> 6] >>> c & 1) != 0;
+        }
+
+        /**
+         * Sets the bits in mask of word w of row r to those of values. Returns the bits that changed.
+         */
+        long set(int r, int w, long mask, long values)
+        {
+            long old = bits[r][w];
+            long word = old & ~mask | values & mask;
+            if (word == old) return 0;
+
+            if (ownRows == null) {
+                bits = bits.clone();
+                ownRows = new boolean[bits.length];
+            }
+            if (!ownRows[r]) {
+                bits[r] = bits[r].clone();
+                ownRows[r] = true;
+            }
+            bits[r][w] = word;
+
+            if (!ownView) {
+                view = view.clone();
+                ownView = true;
+            }
+            view[r] = null;
+            stale = true;
+            return old ^ word;
+        }
+
+        /**
+         * Returns the bits as booleans, making any rows not yet made.
+         */
+        boolean[][] view()
+        {
+            if (stale) {
+                for (int r = 0; r < view.length; r++) {
+                    if (view[r] != null) continue;
+                    boolean[] row = new boolean[width];
+                    for (int c = 0; c < width; c++) row[c] = get(r, c) != inverted;
+                    view[r] = row;
+                }
+                stale = false;
+            }
+            ownView = false;
+            return view;
+        }
+    }
+
+    private final int size;
+    private final PuzzleDefinition definition;  // where the grid comes from, or null if every segment can be used
+    private Plane horizontalOn;     // the horizontal segments that are ON
+    private Plane horizontalOff;    // and OFF
+    private Plane verticalOn;
+    private Plane verticalOff;
+    private EdgeListener listener;
+
+    /**
+     * Creates an empty solution for a puzzle of the given size, where every segment can be used.
+     */
+    public SolutionState(int size)
+    {
+        this.size = size;
+        definition = null;
+        clear();
+    }
+
+    /**
+     * Creates an empty solution for the puzzle definition, with the segments its grid can't use OFF.
+     */
+    public SolutionState(PuzzleDefinition definition)
+    {
+        size = definition.size();
+        this.definition = definition;
+        clear();
+    }
+
+    /**
+     * Creates a copy of other, sharing all its rows.
+     */
+    private SolutionState(SolutionState other)
+    {
+        size = other.size;
+        definition = other.definition;
+        horizontalOn = other.horizontalOn.copy();
+        horizontalOff = other.horizontalOff.copy();
+        verticalOn = other.verticalOn.copy();
+        verticalOff = other.verticalOff.copy();
+    }
+
+    /**
+     * Returns a copy of the solution, in constant time.
+     * Changes to either state afterwards don't affect the other. The copy has no listener.
+     */
+    public SolutionState fork()
+    {
+        return new SolutionState(this);
+    }
+
+    /**
+     * Makes this solution a copy of snapshot, in constant time (and a step for each changed row, if listened to).
+     * snapshot is assumed to be for a puzzle of the same size.
+     */
+    public void restore(SolutionState snapshot)
+    {
+        Plane[] old = {horizontalOn, horizontalOff, verticalOn, verticalOff};
+        horizontalOn = snapshot.horizontalOn.copy();
+        horizontalOff = snapshot.horizontalOff.copy();
+        verticalOn = snapshot.verticalOn.copy();
+        verticalOff = snapshot.verticalOff.copy();
+        reportChanges(old);
+    }
+
+    /**
+     * Sets the listener told about each change to the segments, or null for none.
+     */
+    public void setListener(EdgeListener listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the listener told about each change to the segments, or null.
+     */
+    public EdgeListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Returns the size of the puzzle the solution is for.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the state of the solution, horizontally: true if a segment is ON.
+     */
+    public boolean[][] getHorizontal()
+    {
+        return horizontalOn.view();
+    }
+
+    /**
+     * Returns the state of the solution, vertically: true if a segment is ON.
+     */
+    public boolean[][] getVertical()
+    {
+        return verticalOn.view();
+    }
+
+    /**
+     * Returns the horizontal segments that can still be used: true unless a segment is OFF.
+     * Until something is crossed out, or drawn where the grid can't be used, this is the grid of the definition.
+     */
+    public boolean[][] getGridHorizontal()
+    {
+        return horizontalOff.view();
+    }
+
+    /**
+     * Returns the vertical segments that can still be used: true unless a segment is OFF.
+     */
+    public boolean[][] getGridVertical()
+    {
+        return verticalOff.view();
+    }
+
+    /**
+     * Returns the horizontal segments that are ON, bit-packed.
+     */
+    public long[][] getHorizontalBits()
+    {
+        return horizontalOn.bits;
+    }
+
+    /**
+     * Returns the vertical segments that are ON, bit-packed.
+     */
+    public long[][] getVerticalBits()
+    {
+        return verticalOn.bits;
+    }
+
+    /**
+     * Returns the horizontal segments that are OFF, bit-packed.
+     */
+    public long[][] getHorizontalOffBits()
+    {
+        return horizontalOff.bits;
+    }
+
+    /**
+     * Returns the vertical segments that are OFF, bit-packed.
+     */
+    public long[][] getVerticalOffBits()
+    {
+        return verticalOff.bits;
+    }
+
+    /**
+     * Returns whether the horizontal line segment to the right of Dot r,c is ON.
+     * The indices are assumed to be legal.
+     */
+    public boolean isHorizontal(int r, int c)
+    {
+        return horizontalOn.get(r, c);
+    }
+
+    /**
+     * Returns whether the vertical line segment below Dot r,c is ON.
+     * The indices are assumed to be legal.
+     */
+    public boolean isVertical(int r, int c)
+    {
+        return verticalOn.get(r, c);
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN) of the horizontal line segment to the right of Dot r,c.
+     * The indices are assumed to be legal.
+     */
+    public byte getHorizontalState(int r, int c)
+    {
+        return horizontalOn.get(r, c) ? ON : horizontalOff.get(r, c) ? OFF : UNKNOWN;
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN) of the vertical line segment below Dot r,c.
+     * The indices are assumed to be legal.
+     */
+    public byte getVerticalState(int r, int c)
+    {
+        return verticalOn.get(r, c) ? ON : verticalOff.get(r, c) ? OFF : UNKNOWN;
+    }
+
+    /**
+     * Sets the state (ON, OFF or UNKNOWN) of the horizontal line segment to the right of Dot r,c.
+     * The indices are assumed to be legal.
+     */
+    public void setHorizontalState(int r, int c, byte value)
+    {
+        setWord(true, r, c >>> 6, 1L << c, value);
+    }
+
+    /**
+     * Sets the state (ON, OFF or UNKNOWN) of the vertical line segment below Dot r,c.
+     * The indices are assumed to be legal.
+     */
+    public void setVerticalState(int r, int c, byte value)
+    {
+        setWord(false, r, c >>> 6, 1L << c, value);
+    }
+
+    /**
+     * Toggles the horizontal line segment to the right of Dot r,c, if the indices are legal.
+     * Otherwise do nothing.
+     */
+    public void toggleHorizontal(int r, int c)
+    {
+        if (r >= 0 && r < size + 1 && c >= 0 && c < size) {
+            setHorizontal(r, c, !isHorizontal(r, c));
+        }
+    }
+
+    /**
+     * Toggles the vertical line segment below Dot r,c, if the indices are legal.
+     * Otherwise do nothing.
+     */
+    public void toggleVertical(int r, int c)
+    {
+        if (r >= 0 && r < size && c >= 0 && c < size + 1) {
+            setVertical(r, c, !isVertical(r, c));
+        }
+    }
+
+    /**
+     * Turns the horizontal line segment to the right of Dot r,c on, or if it is on, off:
+     * back to how it started. The indices are assumed to be legal.
+     */
+    public void setHorizontal(int r, int c, boolean on)
+    {
+        if (on) setHorizontalState(r, c, ON);
+        else if (isHorizontal(r, c)) resetWord(true, r, c >>> 6, 1L << c);
+    }
+
+    /**
+     * Turns the vertical line segment below Dot r,c on, or if it is on, off:
+     * back to how it started. The indices are assumed to be legal.
+     */
+    public void setVertical(int r, int c, boolean on)
+    {
+        if (on) setVerticalState(r, c, ON);
+        else if (isVertical(r, c)) resetWord(false, r, c >>> 6, 1L << c);
+    }
+
+    /**
+     * Returns which of the horizontal segments 64 * w to 64 * w + 63 of row r are in state value, one bit each.
+     */
+    public long getHorizontalWord(int r, int w, byte value)
+    {
+        return word(horizontalOn, horizontalOff, r, w, value);
+    }
+
+    /**
+     * Returns which of the vertical segments 64 * w to 64 * w + 63 of row r are in state value, one bit each.
+     */
+    public long getVerticalWord(int r, int w, byte value)
+    {
+        return word(verticalOn, verticalOff, r, w, value);
+    }
+
+    /**
+     * Puts the horizontal segments of row r in mask (bit b for segment 64 * w + b) into state value.
+     */
+    public void setHorizontalWord(int r, int w, long mask, byte value)
+    {
+        setWord(true, r, w, mask, value);
+    }
+
+    /**
+     * Puts the vertical segments of row r in mask (bit b for segment 64 * w + b) into state value.
+     */
+    public void setVerticalWord(int r, int w, long mask, byte value)
+    {
+        setWord(false, r, w, mask, value);
+    }
+
+    /**
+     * Makes the horizontal segments 64 * w to 64 * w + 63 of row r that are ON exactly those in lines;
+     * the others that were ON go back to how they started.
+     */
+    public void setHorizontalLines(int r, int w, long lines)
+    {
+        resetWord(true, r, w, horizontalOn.bits[r][w] & ~lines);
+        setWord(true, r, w, lines, ON);
+    }
+
+    /**
+     * Makes the vertical segments 64 * w to 64 * w + 63 of row r that are ON exactly those in lines;
+     * the others that were ON go back to how they started.
+     */
+    public void setVerticalLines(int r, int w, long lines)
+    {
+        resetWord(false, r, w, verticalOn.bits[r][w] & ~lines);
+        setWord(false, r, w, lines, ON);
+    }
+
+    /**
+     * Returns the number of segments in state value.
+     */
+    public int count(byte value)
+    {
+        int count = 0;
+        for (int r = 0; r <= size; r++) {
+            for (int w = 0; w < horizontalOn.bits[r].length; w++) count += Long.bitCount(getHorizontalWord(r, w, value));
+            if (r == size) continue;
+            for (int w = 0; w < verticalOn.bits[r].length; w++) count += Long.bitCount(getVerticalWord(r, w, value));
+        }
+        return count;
+    }
+
+    /**
+     * Returns which segments of word w of row r of the planes on and off are in state value.
+     */
+    private static long word(Plane on, Plane off, int r, int w, byte value)
+    {
+        if (value == ON) return on.bits[r][w];
+        if (value == OFF) return off.bits[r][w];
+        return ~(on.bits[r][w] | off.bits[r][w]) & usable(on.width, w);
+    }
+
+    /**
+     * Returns the bits of word w that are segments, in a row width segments long.
+     */
+    private static long usable(int width, int w)
+    {
+        int bits = width - 64 * w;
+        return bits >= 64 ? -1L : (1L << bits) - 1;
+    }
+
+    /**
+     * Puts the segments in mask of word w of row r into state value, and reports any change.
+     */
+    private void setWord(boolean horizontal, int r, int w, long mask, byte value)
+    {
+        Plane on = horizontal ? horizontalOn : verticalOn;
+        Plane off = horizontal ? horizontalOff : verticalOff;
+        mask &= usable(on.width, w);
+        long changed = on.set(r, w, mask, value == ON ? -1L : 0) | off.set(r, w, mask, value == OFF ? -1L : 0);
+        if (changed != 0 && listener != null) listener.edgesChanged(horizontal, r, w, changed);
+    }
+
+    /**
+     * Puts the segments in mask of word w of row r back how they started, and reports any change.
+     */
+    private void resetWord(boolean horizontal, int r, int w, long mask)
+    {
+        Plane on = horizontal ? horizontalOn : verticalOn;
+        Plane off = horizontal ? horizontalOff : verticalOff;
+        long start = 0;
+        if (definition != null) start = (horizontal ? definition.getGridHorizontalOffBits() : definition.getGridVerticalOffBits())[r][w];
+        mask &= usable(on.width, w);
+        long changed = on.set(r, w, mask, 0) | off.set(r, w, mask, start);
+        if (changed != 0 && listener != null) listener.edgesChanged(horizontal, r, w, changed);
+    }
+
+    /**
+     * Reports the segments that differ between the planes old (horizontal ON and OFF, then vertical) and the current ones.
+     */
+    private void reportChanges(Plane[] old)
+    {
+        if (listener == null) return;
+        Plane[] now = {horizontalOn, horizontalOff, verticalOn, verticalOff};
+        for (int plane = 0; plane < 4; plane += 2) {
+            long[][] oldOn = old[plane].bits, oldOff = old[plane + 1].bits;
+            long[][] on = now[plane].bits, off = now[plane + 1].bits;
+            for (int r = 0; r < on.length; r++) {
+                // rows still shared can't have changed
+                if (on[r] == oldOn[r] && off[r] == oldOff[r]) continue;
+                for (int w = 0; w < on[r].length; w++) {
+                    long changed = (on[r][w] ^ oldOn[r][w]) | (off[r][w] ^ oldOff[r][w]);
+                    if (changed != 0) listener.edgesChanged(plane == 0, r, w, changed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears all line segments out of the solution, and puts back any crossed out.
+     */
+    public void clear()
+    {
+        Plane[] old = {horizontalOn, horizontalOff, verticalOn, verticalOff};
+        horizontalOn = new Plane(size + 1, size, false);
+        verticalOn = new Plane(size, size + 1, false);
+        if (definition == null) {
+            horizontalOff = new Plane(size + 1, size, true);
+            verticalOff = new Plane(size, size + 1, true);
+        } else {
+            horizontalOff = new Plane(definition.getGridHorizontalOffBits(), definition.getGridHorizontal(), size, true);
+            verticalOff = new Plane(definition.getGridVerticalOffBits(), definition.getGridVertical(), size + 1, true);
+        }
+        if (old[0] != null) reportChanges(old);
+    }
+}
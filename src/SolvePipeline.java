@@ -0,0 +1,282 @@
+/**
+ * SolvePipeline solves a corpus of Slither Link puzzles in three stages:
+ * a reader that loads and parses the files, a pool of solver workers, and a writer
+ * that stores the solutions in the same order as the files were read.
+ * The stages are joined by bounded queues, and only a fixed number of puzzles can be
+ * between the reader and the writer at once, so a slow stage holds the others back
+ * and memory stays flat however big the corpus is.
+ * Boards that repeat in the corpus, even rotated or mirrored, are only solved once (see SolutionCache).
+ *
+ * Usage: java SolvePipeline [-workers n] [-binary] -out file [file or directory]...
+ * Directories are searched for eg*.txt files.
+ *
+ * The text output has one line per puzzle:
+ *   name size solved|unsolvable|unreadable|failed hex
+ * where hex is the solution, one bit per segment (horizontal segments row by row, then
+ * vertical segments row by row), most significant bit first, padded to whole bytes.
+ * The binary output is a sequence of records: the length of the name and the name in UTF-8,
+ * a status byte (0 solved, 1 unsolvable, 2 unreadable, 3 failed), then for solved puzzles the length
+ * of a SaveGame save of the solved puzzle and the save itself.
+ * A puzzle whose solve throws is written as failed, and the rest of the corpus carries on.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SolvePipeline
+{
+    public static final int SOLVED = 0;
+    public static final int UNSOLVABLE = 1;
+    public static final int UNREADABLE = 2;
+    public static final int FAILED = 3;         // the solver threw
+    private static final String[] STATUS_NAMES = {"solved", "unsolvable", "unreadable", "failed"};
+
+    /**
+     * A puzzle on its way through the pipeline.
+     */
+    private static class Job
+    {
+        final long sequence;
+        final String name;
+        final Puzzle puzzle;    // null if the file couldn't be read, and at the end of the corpus
+        int status;
+
+        Job(long sequence, String name, Puzzle puzzle)
+        {
+            this.sequence = sequence;
+            this.name = name;
+            this.puzzle = puzzle;
+            this.status = puzzle == null ? UNREADABLE : UNSOLVABLE;
+        }
+    }
+
+    private static final Job END = new Job(-1, "", null);
+
+    private final int workers;
+    private final boolean binary;
+    private final BlockingQueue<Job> unsolved;
+    private final BlockingQueue<Job> solved;
+    private final Semaphore inFlight;       // puzzles read but not yet written
+    private final SolutionCache solutions = new SolutionCache(1 << 24);
+
+    /**
+     * Creates a pipeline with the given number of solver workers, writing text or binary output.
+     */
+    public SolvePipeline(int workers, boolean binary)
+    {
+        this.workers = workers;
+        this.binary = binary;
+        int capacity = 4 * workers;
+        unsolved = new ArrayBlockingQueue<>(capacity);
+        solved = new ArrayBlockingQueue<>(capacity);
+        inFlight = new Semaphore(2 * capacity);
+    }
+
+    /**
+     * Solves every puzzle named by sources (files as given, and eg*.txt inside directories),
+     * writing the results to out. Returns the number of puzzles written.
+     */
+    public long run(List<Path> sources, OutputStream out) throws IOException, InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 1);
+        try {
+            Future<?> reader = pool.submit(() -> { read(sources); return null; });
+            List<Future<?>> solvers = new ArrayList<>();
+            for (int i = 0; i < workers; i++) solvers.add(pool.submit(() -> { solve(); return null; }));
+
+            long written = write(out);
+
+            // the workers have all stopped; if one failed, the reader is stopped by shutdownNow
+            for (Future<?> solver : solvers) solver.get();
+            reader.get();
+            return written;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The reader: loads each puzzle in turn, then tells every worker there are no more.
+     */
+    private void read(List<Path> sources) throws IOException, InterruptedException
+    {
+        long sequence = 0;
+        try {
+            for (Path source : sources) {
+                if (Files.isDirectory(source)) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(source, "eg*.txt")) {
+                        for (Path file : files) enqueue(sequence++, file);
+                    }
+                } else {
+                    enqueue(sequence++, source);
+                }
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) unsolved.put(END);
+        }
+    }
+
+    /**
+     * Loads one puzzle and passes it to the workers, once there is room.
+     */
+    private void enqueue(long sequence, Path file) throws InterruptedException
+    {
+        inFlight.acquire();
+        Puzzle p;
+        try {
+            p = new Puzzle(new FileIO(file).getLines());
+        } catch (RuntimeException e) {
+            p = null;
+        }
+        unsolved.put(new Job(sequence, file.getFileName().toString(), p));
+    }
+
+    /**
+     * A worker: solves puzzles until the reader runs out.
+     */
+    private void solve() throws InterruptedException
+    {
+        try {
+            for (Job job = unsolved.take(); job != END; job = unsolved.take()) {
+                // a job that fails is still passed on, or the writer would wait for it forever
+                try {
+                    if (job.puzzle != null && solve(job.puzzle)) job.status = SOLVED;
+                } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                    job.status = FAILED;
+                    System.err.println("Couldn't solve " + job.name + ": " + e);
+                }
+                solved.put(job);
+            }
+        } finally {
+            solved.put(END);
+        }
+    }
+
+    /**
+     * Draws a solution of p onto it; returns false if it has none.
+     */
+    boolean solve(Puzzle p)
+    {
+        return solutions.solve(p);
+    }
+
+    /**
+     * The writer: writes each solution in the order the puzzles were read.
+     * Returns the number of puzzles written.
+     */
+    private long write(OutputStream out) throws IOException, InterruptedException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        SaveGame saver = new SaveGame();
+        Map<Long, Job> waiting = new HashMap<>();   // never more than the puzzles in flight
+        long next = 0;
+        int finished = 0;
+
+        while (finished < workers) {
+            Job job = solved.take();
+            if (job == END) {
+                finished++;
+                continue;
+            }
+            waiting.put(job.sequence, job);
+            for (Job ready = waiting.remove(next); ready != null; ready = waiting.remove(next)) {
+                if (binary) writeBinary(data, ready, saver);
+                else writeText(data, ready);
+                next++;
+                inFlight.release();
+            }
+        }
+        data.flush();
+        return next;
+    }
+
+    /**
+     * Writes one result as a line of text.
+     */
+    private static void writeText(DataOutputStream data, Job job) throws IOException
+    {
+        StringBuilder line = new StringBuilder(job.name);
+        line.append(' ').append(job.puzzle == null ? 0 : job.puzzle.size());
+        line.append(' ').append(STATUS_NAMES[job.status]).append(' ');
+        if (job.status == SOLVED) {
+            int bits = 0;
+            int count = 0;
+            for (boolean[][] segments : new boolean[][][] {job.puzzle.getHorizontal(), job.puzzle.getVertical()}) {
+                for (boolean[] row : segments) {
+                    for (boolean segment : row) {
+                        bits = bits << 1 | (segment ? 1 : 0);
+                        if (++count == 8) {
+                            line.append(Character.forDigit(bits >> 4, 16)).append(Character.forDigit(bits & 0xf, 16));
+                            bits = 0;
+                            count = 0;
+                        }
+                    }
+                }
+            }
+            if (count > 0) {
+                bits <<= 8 - count;
+                line.append(Character.forDigit(bits >> 4, 16)).append(Character.forDigit(bits & 0xf, 16));
+            }
+        }
+        line.append('\n');
+        data.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes one result as a binary record.
+     */
+    private static void writeBinary(DataOutputStream data, Job job, SaveGame saver) throws IOException
+    {
+        byte[] name = job.name.getBytes(StandardCharsets.UTF_8);
+        data.writeShort(name.length);
+        data.write(name);
+        data.writeByte(job.status);
+        if (job.status == SOLVED) {
+            ByteBuffer save = saver.encode(job.puzzle);
+            data.writeInt(save.remaining());
+            byte[] bytes = new byte[save.remaining()];
+            save.get(bytes);
+            data.write(bytes);
+        }
+    }
+
+    /**
+     * Solves a corpus from the command line.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int workers = Runtime.getRuntime().availableProcessors();
+        boolean binary = false;
+        Path output = null;
+        List<Path> sources = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-workers")) workers = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-binary")) binary = true;
+            else if (args[i].equals("-out")) output = Paths.get(args[++i]);
+            else sources.add(Paths.get(args[i]));
+        }
+        if (output == null) {
+            System.err.println("Usage: java SolvePipeline [-workers n] [-binary] -out file [file or directory]...");
+            System.exit(1);
+        }
+        if (sources.isEmpty()) sources.add(Paths.get("."));
+
+        long start = System.nanoTime();
+        long written;
+        try (OutputStream out = Files.newOutputStream(output)) {
+            written = new SolvePipeline(workers, binary).run(sources, out);
+        }
+        System.out.printf("%d puzzles in %.2fs%n", written, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,116 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * This class provides unit test cases for the SolvePipeline class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class SolvePipelineTest
+{
+    private String[] boards = {"eg2_1.txt", "eg3_1.txt", "eg5_1.txt", "eg5_2.txt", "eg7_1.txt", "eg7_2.txt", "eg10_1.txt"};
+    private ArrayList<Path> paths;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        paths = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            for (String board : boards)
+                paths.add(Paths.get(getClass().getResource(board).toURI()));
+        paths.add(Paths.get("no such file.txt"));
+    }
+
+    @Test
+    public void testtext() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(paths.size(), new SolvePipeline(3, false).run(paths, out));
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(paths.size(), lines.length);
+        for (int i = 0; i < paths.size() - 1; i++)
+        {
+            String[] fields = lines[i].split(" ");
+            assertEquals(boards[i % boards.length], fields[0]);
+            assertEquals("solved", fields[2]);
+
+            // the hex holds the segments of a finished puzzle
+            Puzzle p = new Puzzle(boards[i % boards.length]);
+            int size = p.size();
+            int bit = 0;
+            for (int r = 0; r <= size; r++)
+                for (int c = 0; c < size; c++, bit++)
+                    if ((Character.digit(fields[3].charAt(bit / 4), 16) >> (3 - bit % 4) & 1) == 1) p.horizontalClick(r, c);
+            for (int r = 0; r < size; r++)
+                for (int c = 0; c <= size; c++, bit++)
+                    if ((Character.digit(fields[3].charAt(bit / 4), 16) >> (3 - bit % 4) & 1) == 1) p.verticalClick(r, c);
+            assertEquals("Finished", AnalyzeSolution.finished(p));
+        }
+        assertEquals("no such file.txt 0 unreadable ", lines[lines.length - 1]);
+    }
+
+    @Test
+    public void testbinary() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SolvePipeline(2, true).run(paths, out);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        for (int i = 0; i < paths.size() - 1; i++)
+        {
+            byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            assertEquals(boards[i % boards.length], new String(name, StandardCharsets.UTF_8));
+            assertEquals(SolvePipeline.SOLVED, in.readByte());
+            byte[] save = new byte[in.readInt()];
+            in.readFully(save);
+            assertEquals("Finished", AnalyzeSolution.finished(SaveGame.decode(ByteBuffer.wrap(save))));
+        }
+        in.skipBytes(in.readShort());
+        assertEquals(SolvePipeline.UNREADABLE, in.readByte());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testfailure() throws Exception
+    {
+        // a solver that throws on every 5x5 board fails those puzzles, but not the rest of the corpus
+        SolvePipeline pipeline = new SolvePipeline(1, false) {
+            boolean solve(Puzzle p)
+            {
+                if (p.size() == 5) throw new IllegalStateException("broken");
+                return super.solve(p);
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> written = runner.submit(() -> pipeline.run(paths, out));
+            assertEquals(Long.valueOf(paths.size()), written.get(60, TimeUnit.SECONDS));
+        } finally {
+            runner.shutdownNow();
+        }
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        for (int i = 0; i < paths.size() - 1; i++)
+        {
+            String[] fields = lines[i].split(" ");
+            assertEquals(boards[i % boards.length], fields[0]);
+            assertEquals(fields[1].equals("5") ? "failed" : "solved", fields[2]);
+        }
+    }
+}
@@ -0,0 +1,1489 @@
+/**
+ * Solver finds the solution of a square Slither Link puzzle.
+ * Deductions are made with the cheapest rules first, and stronger techniques
+ * are only used when the cheaper ones get stuck, so the work done at each tier
+ * describes how hard the puzzle is.
+ *
+ * A solve can be stopped early by cancel(), a deadline, or interrupting its thread;
+ * the search checks for this at every guess. It then keeps only the edges it proved
+ * without guessing. solveAsync runs a solve with a time budget in the background.
+ *
+ * How the search guesses, and which tiers are used, can be configured (see Portfolio):
+ * setHeuristic picks the edges guessed, setSeed breaks ties and orders guesses at random,
+ * and setTiers turns COLOUR and TRIAL off to trade fewer deductions for faster guesses.
+ *
+ * Before searching, the undecided edges are split into regions that share no dot or numbered
+ * square, so only the single-loop rule links them. Each region is searched on its own copy of
+ * the solver, in parallel, for the ways it can join up the path ends in it; then a small search
+ * over those ways finds the one for each region that makes a single loop. A region with too
+ * many ways sends the solver back to searching the whole board (see setRegions).
+ *
+ * All the solver's state is in flat primitive arrays sized by the board, and the search keeps its
+ * guesses on an explicit stack, so a solve needs a fixed amount of memory (see footprint) and no
+ * deep call stack. A memory limit caps how many region copies run at once.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class Solver
+{
+    /**
+     * The outcome of a solve with a time budget.
+     */
+    public static class Result
+    {
+        public static final int SOLVED = 0;
+        public static final int UNSOLVABLE = 1;
+        public static final int UNSOLVED = 2;       // stopped before it finished
+        public static final String[] STATUS_NAMES = {"solved", "unsolvable", "unsolved"};
+
+        public final int status;
+        public final byte[][] horizontal;   // ON, OFF or UNKNOWN for each segment: the solution,
+        public final byte[][] vertical;     // or what was proved before stopping
+        public final long nanos;
+
+        public Result(int status, byte[][] horizontal, byte[][] vertical, long nanos)
+        {
+            this.status = status;
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Replaces the current solution in p with the segments known to be on.
+         */
+        public void applyTo(Puzzle p)
+        {
+            applyLines(horizontal, vertical, p);
+        }
+    }
+
+    // edge states, as in SolutionState
+    public static final byte UNKNOWN = SolutionState.UNKNOWN;
+    public static final byte ON = SolutionState.ON;
+    public static final byte OFF = SolutionState.OFF;
+
+    // deduction tiers, cheapest first
+    public static final int BASIC = 0;      // clue counts, dot degrees and premature loops
+    public static final int COLOUR = 1;     // which squares are inside the loop, and which outside
+    public static final int TRIAL = 2;      // assume an edge, and see if BASIC finds a contradiction
+    public static final int SEARCH = 3;     // backtracking
+    public static final String[] TIER_NAMES = {"basic", "colour", "trial", "search"};
+
+    // search heuristics
+    public static final int DANGLING = 0;       // continue a path from a dangling end
+    public static final int CONSTRAINED = 1;    // an edge of the numbered square with the fewest undecided edges
+
+    private final int n;                // the size of the puzzle
+    private final int[] clues;          // the number in each cell, -1 if the cell is empty
+    private final int horizontalCount;  // horizontal edges come first, then the vertical edges
+    private final int edgeCount;
+    private final int dotCount;
+
+    private final int[] cellEdges;      // the 4 edges around each cell
+    private final int[] dotEdges;       // the (up to) 4 edges at each dot, -1 if missing
+    private final int[] edgeDots;       // the 2 dots at the ends of each edge
+    private final int[] edgeCells;      // the (up to) 2 cells beside each edge, -1 if missing
+
+    private final byte[] state;         // UNKNOWN, ON or OFF for each edge
+    private final int[] cellOn;         // the number of ON/OFF edges around each cell
+    private final int[] cellOff;
+    private final int[] dotOn;          // the number of ON/OFF edges at each dot
+    private final int[] dotOff;
+    private int onCount;
+
+    private final int[] trail;          // the edges in the order they were decided
+    private int trailSize;
+
+    // the drawn lines form paths; each end of a path knows the other end and the path's length
+    private final int[] mate;           // the other end of the path ending at a dot, the dot itself
+                                        // if it has no lines, or -1 if the dot is inside a path
+    private final int[] pathLength;     // the number of lines in the path ending at a dot
+    private final int[] joinedEnds;     // the ends of the path each drawn edge made, -1 if it closed a loop
+    private final int[] loopLength;     // the length of the loop each drawn edge closed, 0 if it didn't
+    private final int[] mateLog;        // the dot, old mate and old length for each change made to the paths
+    private int mateLogSize;
+    private final int[] mateLogMark;    // the size of mateLog when each edge on the trail was decided
+
+    private final CellColouring colouring;  // rebuilt from the edges whenever COLOUR is used
+
+    private final int[] guessEdge;      // the search's stack of guesses: the edge,
+    private final byte[] guessValue;    // the value being tried,
+    private final byte[] guessTries;    // how many values have been tried,
+    private final int[] guessMark;      // and the size of the trail before it
+    private final int[] groupRoots = new int[4];
+    private final int[] groupOn = new int[8];   // lines a group adds if its squares are the same/different colour
+    private final boolean[] groupPossible = new boolean[8];
+
+    // grading
+    private int tier;
+    private boolean probing;
+    private final int[] steps = new int[TIER_NAMES.length];
+    private long searchNodes;
+    private int hardestTier = -1;
+
+    // configuration
+    private int heuristic = DANGLING;
+    private Random random;              // null to guess in a fixed order
+    private long seed;
+    private boolean useColour = true;
+    private boolean useTrial = true;
+
+    // stopping early
+    private volatile boolean cancelled;
+    private volatile boolean regionFailed;  // a region has no solution, so the others can stop
+    private final Solver owner;             // the solver this copy searches a region for, or null
+    private boolean timed;
+    private long deadline;              // the System.nanoTime() to stop at, if timed
+    private boolean stopped;
+
+    // regions
+    public static final int MIN_REGION_EDGES = 64;      // fewer undecided edges than this aren't worth splitting
+    public static final int MAX_PAIRINGS = 64;          // the most ways of joining up its path ends a region may have
+    public static final long MAX_REGION_NODES = 2000;   // the most guesses a copy makes in its region
+    public static final long MAX_JOIN_NODES = 1000000;  // the most choices tried while joining the regions
+    private boolean useRegions = true;
+    private int[] focus;                // the edges of the region a copy searches, or null for every edge
+    private RegionAnswers regionAnswers;
+    private boolean joinCapped;         // whether the last join gave up before trying every choice
+    private int regionCount;
+    private final long memoryLimit;     // the most bytes the solve may use, region copies included
+
+    /**
+     * Creates a solver for the puzzle p.
+     * The lines drawn in p are ignored, but its OFF segments (to begin with, the ones its grid
+     * can't use) are used as a head start.
+     */
+    public Solver(Puzzle p)
+    {
+        this(p, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a solver for the puzzle p that uses at most memoryLimit bytes, region copies included.
+     * Throws IllegalArgumentException if the solver itself needs more (see footprint).
+     */
+    public Solver(Puzzle p, long memoryLimit)
+    {
+        if (footprint(p.size()) > memoryLimit) {
+            throw new IllegalArgumentException("A " + p.size() + "x" + p.size() + " puzzle needs " + footprint(p.size()) + " bytes to solve");
+        }
+        this.memoryLimit = memoryLimit;
+        owner = null;
+        n = p.size();
+        horizontalCount = (n + 1) * n;
+        edgeCount = 2 * horizontalCount;
+        dotCount = (n + 1) * (n + 1);
+
+        clues = new int[n * n];
+        for (int r = 0; r < n; r++)
+            for (int c = 0; c < n; c++)
+                clues[r * n + c] = p.getPuzzle()[r][c];
+
+        cellEdges = new int[4 * n * n];
+        dotEdges = new int[4 * dotCount];
+        edgeDots = new int[2 * edgeCount];
+        edgeCells = new int[2 * edgeCount];
+        buildTables();
+
+        state = new byte[edgeCount];
+        cellOn = new int[n * n];
+        cellOff = new int[n * n];
+        dotOn = new int[dotCount];
+        dotOff = new int[dotCount];
+        trail = new int[edgeCount];
+        mate = new int[dotCount];
+        pathLength = new int[dotCount];
+        for (int dot = 0; dot < dotCount; dot++) mate[dot] = dot;
+        joinedEnds = new int[2 * edgeCount];
+        loopLength = new int[edgeCount];
+        mateLog = new int[3 * 4 * edgeCount];
+        mateLogMark = new int[edgeCount];
+        colouring = new CellColouring(n * n + 1);
+        guessEdge = new int[edgeCount];
+        guessValue = new byte[edgeCount];
+        guessTries = new byte[edgeCount];
+        guessMark = new int[edgeCount];
+
+        // lines the puzzle has already ruled out, 64 at a time
+        SolutionState given = p.getState();
+        for (int r = 0; r <= n; r++) {
+            for (int w = 0; w < (n + 63) / 64; w++)
+                for (long off = given.getHorizontalWord(r, w, OFF); off != 0; off &= off - 1)
+                    set(horizontalEdge(r, 64 * w + Long.numberOfTrailingZeros(off)), OFF);
+            if (r == n) continue;
+            for (int w = 0; w < (n + 64) / 64; w++)
+                for (long off = given.getVerticalWord(r, w, OFF); off != 0; off &= off - 1)
+                    set(verticalEdge(r, 64 * w + Long.numberOfTrailingZeros(off)), OFF);
+        }
+    }
+
+    /**
+     * Creates a copy of other, in its current state, to search the region of edges focus.
+     * The lookup tables are shared, since they never change.
+     */
+    private Solver(Solver other, int[] focus)
+    {
+        owner = other;
+        memoryLimit = other.memoryLimit;
+        this.focus = focus;
+        regionAnswers = new RegionAnswers();
+        n = other.n;
+        horizontalCount = other.horizontalCount;
+        edgeCount = other.edgeCount;
+        dotCount = other.dotCount;
+        clues = other.clues;
+        cellEdges = other.cellEdges;
+        dotEdges = other.dotEdges;
+        edgeDots = other.edgeDots;
+        edgeCells = other.edgeCells;
+
+        state = other.state.clone();
+        cellOn = other.cellOn.clone();
+        cellOff = other.cellOff.clone();
+        dotOn = other.dotOn.clone();
+        dotOff = other.dotOff.clone();
+        onCount = other.onCount;
+        trail = other.trail.clone();
+        trailSize = other.trailSize;
+        mate = other.mate.clone();
+        pathLength = other.pathLength.clone();
+        joinedEnds = other.joinedEnds.clone();
+        loopLength = other.loopLength.clone();
+        mateLog = other.mateLog.clone();
+        mateLogSize = other.mateLogSize;
+        mateLogMark = other.mateLogMark.clone();
+        colouring = new CellColouring(n * n + 1);
+        guessEdge = new int[edgeCount];
+        guessValue = new byte[edgeCount];
+        guessTries = new byte[edgeCount];
+        guessMark = new int[edgeCount];
+
+        tier = SEARCH;
+        heuristic = other.heuristic;
+        seed = other.seed + focus[0];
+        random = other.random == null ? null : new Random(seed);
+        useColour = other.useColour;
+        useTrial = other.useTrial;
+        timed = other.timed;
+        deadline = other.deadline;
+    }
+
+    /**
+     * Returns the number of bytes a solver for a puzzle of the given size uses, without region copies;
+     * the search adds nothing to this however deep it goes.
+     */
+    public static long footprint(int size)
+    {
+        long cells = (long) size * size;
+        long dots = (long) (size + 1) * (size + 1);
+        long edges = 2L * (size + 1) * size;
+        long tables = 4 * cells + 16 * cells + 16 * dots + 8 * edges + 8 * edges;
+        long regions = 16 * edges + 4 * dots;       // while splitting and joining regions
+        return tables + regions + copyFootprint(size);
+    }
+
+    /**
+     * Returns the number of bytes a copy searching a region uses; it shares the lookup tables.
+     */
+    private static long copyFootprint(int size)
+    {
+        long cells = (long) size * size;
+        long dots = (long) (size + 1) * (size + 1);
+        long edges = 2L * (size + 1) * size;
+        long counts = 8 * cells + 8 * dots + 1 * edges;
+        long paths = 8 * dots + 8 * edges + 4 * edges + 48 * edges + 4 * edges;
+        long search = 4 * edges + 10 * edges;       // the trail and the stack of guesses
+        return counts + paths + search + 6 * (cells + 1);
+    }
+
+    /**
+     * Fills in the lookup tables between cells, dots and edges.
+     */
+    private void buildTables()
+    {
+        Arrays.fill(dotEdges, -1);
+        Arrays.fill(edgeCells, -1);
+
+        for (int r = 0; r <= n; r++) {
+            for (int c = 0; c <= n; c++) {
+                int dot = r * (n + 1) + c;
+
+                // horizontal edge to the right of the dot
+                if (c < n) {
+                    int e = horizontalEdge(r, c);
+                    edgeDots[2 * e] = dot;
+                    edgeDots[2 * e + 1] = dot + 1;
+                    if (r > 0) edgeCells[2 * e] = (r - 1) * n + c;
+                    if (r < n) edgeCells[2 * e + 1] = r * n + c;
+                    dotEdges[4 * dot] = e;
+                    dotEdges[4 * (dot + 1) + 1] = e;
+                }
+
+                // vertical edge below the dot
+                if (r < n) {
+                    int e = verticalEdge(r, c);
+                    edgeDots[2 * e] = dot;
+                    edgeDots[2 * e + 1] = dot + n + 1;
+                    if (c > 0) edgeCells[2 * e] = r * n + c - 1;
+                    if (c < n) edgeCells[2 * e + 1] = r * n + c;
+                    dotEdges[4 * dot + 2] = e;
+                    dotEdges[4 * (dot + n + 1) + 3] = e;
+                }
+
+                // edges around the cell below and to the right of the dot
+                if (r < n && c < n) {
+                    int cell = r * n + c;
+                    cellEdges[4 * cell] = horizontalEdge(r, c);
+                    cellEdges[4 * cell + 1] = horizontalEdge(r + 1, c);
+                    cellEdges[4 * cell + 2] = verticalEdge(r, c);
+                    cellEdges[4 * cell + 3] = verticalEdge(r, c + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the horizontal edge to the right of Dot r,c.
+     */
+    private int horizontalEdge(int r, int c)
+    {
+        return r * n + c;
+    }
+
+    /**
+     * Returns the index of the vertical edge below Dot r,c.
+     */
+    private int verticalEdge(int r, int c)
+    {
+        return horizontalCount + r * (n + 1) + c;
+    }
+
+    /**
+     * Solves the puzzle, escalating through the tiers until it is solved.
+     * Returns true if a solution was found, false if the puzzle has none.
+     */
+    public boolean solve()
+    {
+        tier = BASIC;
+        if (!propagate(0)) return false;
+        noteTier(BASIC);
+
+        while (trailSize < edgeCount) {
+            if (shouldStop()) return false;
+            if (useColour) {
+                tier = COLOUR;
+                int deduced = colour();
+                if (deduced < 0) return false;
+                if (deduced > 0) {
+                    noteTier(COLOUR);
+                    continue;
+                }
+            }
+            if (!useTrial) break;
+
+            tier = TRIAL;
+            int deduced = trial();
+            if (deduced < 0) return false;
+            if (deduced == 0) break;
+            noteTier(TRIAL);
+        }
+        if (trailSize == edgeCount) return onCount > 0;
+        if (shouldStop()) return false;
+
+        tier = SEARCH;
+        noteTier(SEARCH);
+        if (useRegions && edgeCount - trailSize >= MIN_REGION_EDGES && memoryLimit - footprint(n) >= copyFootprint(n)) {
+            int solved = solveRegions();
+            if (solved >= 0) return solved == 1;
+        }
+        return search();
+    }
+
+    /**
+     * What a copy found out about its region: each distinct way it can join up the path ends
+     * in the region, with an answer (the states of the region's edges) for each.
+     */
+    private static class RegionAnswers
+    {
+        int[] ends;                 // the dangling path ends in the region
+        java.util.List<int[]> pairings = new java.util.ArrayList<>();   // the end each end is joined to
+        java.util.List<byte[]> answers = new java.util.ArrayList<>();
+        int wanted;                 // the number of pairings to look for
+        boolean capped;             // whether the copy gave up before finding every pairing
+        long nodes;
+    }
+
+    /**
+     * Searches each region of undecided edges on its own copy of the solver, in parallel, for
+     * the ways it can join up the dangling path ends in it, then searches for a way of each
+     * region that makes one loop with the lines already drawn.
+     * Returns 1 if that solved the puzzle, 0 if the puzzle has no solution or the solve was
+     * stopped, and -1 if the board must be searched as a whole instead: it is one region,
+     * has no lines drawn yet, or a region had too many possibilities.
+     */
+    private int solveRegions()
+    {
+        int[][] regions = regions();
+        if (regions.length < 2 || onCount == 0) return -1;
+        regionCount = regions.length;
+        Arrays.sort(regions, (a, b) -> b.length - a.length);    // the biggest first, since they take longest
+
+        // one answer for each region is usually enough; if not, look for the other ways
+        RegionAnswers[] answers = null;
+        for (int wanted : new int[] {1, MAX_PAIRINGS}) {
+            answers = searchRegions(regions, answers, wanted);
+            if (regionFailed || shouldStop()) return 0;
+
+            int solved = join(regions, answers);
+            if (solved >= 0) return solved;
+        }
+        return -1;
+    }
+
+    /**
+     * Searches each region for up to wanted ways of joining up its path ends, in parallel,
+     * except those already searched completely in previous.
+     */
+    private RegionAnswers[] searchRegions(int[][] regions, RegionAnswers[] previous, int wanted)
+    {
+        java.util.List<ForkJoinTask<RegionAnswers>> tasks = new java.util.ArrayList<>();
+        for (int i = 0; i < regions.length; i++) {
+            int[] region = regions[i];
+            RegionAnswers known = previous == null ? null : previous[i];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (known != null && !known.capped) return known;
+                Solver copy = new Solver(this, region);
+                copy.regionAnswers.ends = known != null ? known.ends : regionEnds(region);
+                copy.regionAnswers.wanted = wanted;
+                copy.search();
+                RegionAnswers answers = copy.regionAnswers;
+                answers.nodes = copy.searchNodes;
+                if (answers.pairings.isEmpty() && !answers.capped && !copy.stopped) regionFailed = true;
+                return answers;
+            }));
+        }
+        // only as many copies at once as fit in memory
+        long spare = memoryLimit - footprint(n);
+        int batch = (int) Math.min(tasks.size(), spare / copyFootprint(n));
+        for (int from = 0; from < tasks.size(); from += batch)
+            ForkJoinTask.invokeAll(tasks.subList(from, Math.min(tasks.size(), from + batch)));
+
+        RegionAnswers[] answers = new RegionAnswers[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            answers[i] = tasks.get(i).join();
+            if (previous == null || answers[i] != previous[i]) searchNodes += answers[i].nodes;
+        }
+        return answers;
+    }
+
+    /**
+     * Joins the regions' answers into a solution, trying the regions with the fewest choices first.
+     * Returns 1 if the puzzle is solved, 0 if every way of every region was tried and none
+     * makes a single loop, and -1 if no solution was found but some ways weren't tried.
+     */
+    private int join(int[][] regions, RegionAnswers[] answers)
+    {
+        boolean complete = true;
+        for (RegionAnswers region : answers) complete &= !region.capped;
+
+        Integer[] order = new Integer[regions.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> answers[a].pairings.size() - answers[b].pairings.size());
+        int[] choice = join(answers, order);
+        if (choice == null) return complete && !joinCapped ? 0 : -1;
+
+        int mark = trailSize;
+        for (int k = 0; k < order.length; k++) {
+            int[] region = regions[order[k]];
+            byte[] answer = answers[order[k]].answers.get(choice[k]);
+            for (int j = 0; j < region.length; j++) set(region[j], answer[j]);
+        }
+        if (propagate(mark) && trailSize == edgeCount && onCount > 0) return 1;
+        undo(mark);
+        return -1;
+    }
+
+    /**
+     * Chooses a pairing for each region (taken in order) so that, with the paths already drawn,
+     * the path ends are joined into exactly one loop: only the very last join may close a loop.
+     * Returns the choice for each region in order, or null if there is none (or the join took
+     * more than MAX_JOIN_NODES tries). Uses an explicit stack, since there may be many regions.
+     */
+    private int[] join(RegionAnswers[] answers, Integer[] order)
+    {
+        joinCapped = false;
+        int totalJoins = 0;
+        for (RegionAnswers region : answers) totalJoins += region.ends.length / 2;
+
+        int[] far = mate.clone();       // the other end of the chain ending at each open end
+        int[] log = new int[4 * totalJoins];        // the ends changed, and their old far ends
+        int logSize = 0;
+        int[] logMark = new int[order.length];
+        int[] joined = new int[order.length + 1];   // the joins made before each region
+        int[] choice = new int[order.length];
+        long tries = 0;
+
+        int depth = 0;
+        choice[0] = -1;
+        while (depth >= 0) {
+            while (logSize > logMark[depth]) {
+                logSize -= 2;
+                far[log[logSize]] = log[logSize + 1];
+            }
+            RegionAnswers region = answers[order[depth]];
+            if (++choice[depth] == region.pairings.size()) {
+                depth--;
+                continue;
+            }
+            if (++tries > MAX_JOIN_NODES || shouldStop()) {
+                joinCapped = true;
+                return null;
+            }
+
+            // join each pair of ends the region connects
+            int[] pairing = region.pairings.get(choice[depth]);
+            int count = joined[depth];
+            boolean ok = true;
+            for (int m = 0; m < pairing.length && ok; m++) {
+                if (pairing[m] < m) continue;
+                int a = region.ends[m];
+                int b = region.ends[pairing[m]];
+                count++;
+                if (far[a] == b) {
+                    ok = count == totalJoins;
+                } else {
+                    int farA = far[a];
+                    int farB = far[b];
+                    log[logSize++] = farA;
+                    log[logSize++] = far[farA];
+                    log[logSize++] = farB;
+                    log[logSize++] = far[farB];
+                    far[farA] = farB;
+                    far[farB] = farA;
+                }
+            }
+            if (!ok) continue;
+            if (depth == order.length - 1) return count == totalJoins ? choice : null;
+
+            joined[depth + 1] = count;
+            depth++;
+            logMark[depth] = logSize;
+            choice[depth] = -1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the dots of region that are dangling path ends, in order.
+     */
+    private int[] regionEnds(int[] region)
+    {
+        int[] ends = new int[2 * region.length];
+        int count = 0;
+        for (int e : region) {
+            for (int i = 2 * e; i < 2 * e + 2; i++)
+                if (dotOn[edgeDots[i]] == 1) ends[count++] = edgeDots[i];
+        }
+        ends = Arrays.copyOf(ends, count);
+        Arrays.sort(ends);
+
+        // each end is at more than one edge of the region
+        int distinct = 0;
+        for (int i = 0; i < count; i++)
+            if (i == 0 || ends[i] != ends[i - 1]) ends[distinct++] = ends[i];
+        return Arrays.copyOf(ends, distinct);
+    }
+
+    /**
+     * Records how the region a copy searches joins up its path ends, now that every edge of it
+     * is decided, unless that way was found already.
+     * Returns true if the copy should stop, having found every way or as many as it wants.
+     */
+    private boolean recordPairing()
+    {
+        RegionAnswers answers = regionAnswers;
+        int[] ends = answers.ends;
+        int[] pairing = new int[ends.length];
+        Arrays.fill(pairing, -1);
+
+        // follow the new lines from each end to the end they reach
+        for (int m = 0; m < ends.length; m++) {
+            if (pairing[m] >= 0) continue;
+            int dot = ends[m];
+            int came = -1;
+            do {
+                int next = -1;
+                for (int i = 4 * dot; i < 4 * dot + 4; i++) {
+                    int e = dotEdges[i];
+                    if (e >= 0 && e != came && state[e] == ON && owner.state[e] == UNKNOWN) next = e;
+                }
+                came = next;
+                dot = otherDot(next, dot);
+            } while (owner.dotOn[dot] != 1);
+            int partner = Arrays.binarySearch(ends, dot);
+            pairing[m] = partner;
+            pairing[partner] = m;
+        }
+
+        for (int[] known : answers.pairings)
+            if (Arrays.equals(known, pairing)) return false;
+        byte[] answer = new byte[focus.length];
+        for (int j = 0; j < focus.length; j++) answer[j] = state[focus[j]];
+        answers.pairings.add(pairing);
+        answers.answers.add(answer);
+
+        // with two ends or fewer, there is only one way
+        if (ends.length <= 2) return true;
+        if (answers.pairings.size() < answers.wanted) return false;
+        answers.capped = true;
+        return true;
+    }
+
+    /**
+     * Returns the undecided edges split into regions: edges at the same dot, or around the same
+     * numbered square, are in the same region.
+     */
+    private int[][] regions()
+    {
+        // union-find over the edges
+        int[] parent = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) parent[e] = e;
+        for (int dot = 0; dot < dotCount; dot++) unionUndecided(parent, dotEdges, 4 * dot);
+        for (int cell = 0; cell < n * n; cell++)
+            if (clues[cell] >= 0) unionUndecided(parent, cellEdges, 4 * cell);
+
+        // number the regions, then fill them in
+        int[] regionOf = new int[edgeCount];
+        int[] sizes = new int[edgeCount];
+        int count = 0;
+        Arrays.fill(regionOf, -1);
+        for (int e = 0; e < edgeCount; e++) {
+            if (state[e] != UNKNOWN) continue;
+            int root = find(parent, e);
+            if (regionOf[root] < 0) regionOf[root] = count++;
+            sizes[regionOf[root]]++;
+        }
+        int[][] regions = new int[count][];
+        for (int i = 0; i < count; i++) regions[i] = new int[sizes[i]];
+        Arrays.fill(sizes, 0);
+        for (int e = 0; e < edgeCount; e++) {
+            if (state[e] != UNKNOWN) continue;
+            int region = regionOf[find(parent, e)];
+            regions[region][sizes[region]++] = e;
+        }
+        return regions;
+    }
+
+    /**
+     * Joins the undecided edges among edges[from..from+4) into one set.
+     */
+    private void unionUndecided(int[] parent, int[] edges, int from)
+    {
+        int first = -1;
+        for (int i = from; i < from + 4; i++) {
+            int e = edges[i];
+            if (e < 0 || state[e] != UNKNOWN) continue;
+            if (first < 0) first = find(parent, e);
+            else parent[find(parent, e)] = first;
+        }
+    }
+
+    /**
+     * Returns the representative of e's set, halving the path on the way.
+     */
+    private static int find(int[] parent, int e)
+    {
+        while (parent[e] != e) {
+            parent[e] = parent[parent[e]];
+            e = parent[e];
+        }
+        return e;
+    }
+
+    /**
+     * Sets whether the undecided edges are split into regions searched in parallel; they are by default.
+     */
+    public void setRegions(boolean regions)
+    {
+        useRegions = regions;
+    }
+
+    /**
+     * Returns the number of regions the last solve searched separately, or 0 if it didn't split the board.
+     */
+    public int getRegionCount()
+    {
+        return regionCount;
+    }
+
+    /**
+     * Sets how the search chooses the edge to guess: DANGLING (the default) or CONSTRAINED.
+     */
+    public void setHeuristic(int heuristic)
+    {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Makes the search break ties, and choose whether to guess on or off first, at random.
+     */
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets whether COLOUR and TRIAL are used; both are by default.
+     * Without COLOUR, the search only uses BASIC after each guess.
+     */
+    public void setTiers(boolean colour, boolean trial)
+    {
+        useColour = colour;
+        useTrial = trial;
+    }
+
+    /**
+     * Stops the solve as soon as possible; solve() then returns false and isStopped() true.
+     * Can be called from any thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Makes solve() stop when System.nanoTime() reaches nanoTime.
+     */
+    public void setDeadline(long nanoTime)
+    {
+        timed = true;
+        deadline = nanoTime;
+    }
+
+    /**
+     * Returns whether the last solve was stopped before it finished.
+     * Only the edges proved without guessing are then decided.
+     */
+    public boolean isStopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * Returns whether the solve should stop: it was cancelled, the deadline has passed,
+     * or the thread was interrupted.
+     */
+    private boolean shouldStop()
+    {
+        if (!stopped && (cancelled || owner != null && (owner.cancelled || owner.regionFailed)
+                         || timed && System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted())) stopped = true;
+        return stopped;
+    }
+
+    /**
+     * Records that a tier was needed.
+     */
+    private void noteTier(int t)
+    {
+        hardestTier = Math.max(hardestTier, t);
+    }
+
+    /**
+     * Decides edge e, unless it is already decided.
+     * Returns false if e was already decided the other way.
+     */
+    private boolean set(int e, byte value)
+    {
+        if (state[e] != UNKNOWN) return state[e] == value;
+
+        state[e] = value;
+        int[] cellCounts = value == ON ? cellOn : cellOff;
+        int[] dotCounts = value == ON ? dotOn : dotOff;
+        for (int i = 2 * e; i < 2 * e + 2; i++) {
+            if (edgeCells[i] >= 0) cellCounts[edgeCells[i]]++;
+            dotCounts[edgeDots[i]]++;
+        }
+        mateLogMark[trailSize] = mateLogSize;
+        if (value == ON) {
+            onCount++;
+            joinPaths(e);
+        }
+
+        trail[trailSize++] = e;
+        if (!probing) steps[tier]++;
+        return true;
+    }
+
+    /**
+     * Updates the path ends for the newly drawn edge e, in constant time.
+     * e either joins two paths (or dots) into one, or closes a loop.
+     * A dot with three lines is left alone; checkDot reports it.
+     */
+    private void joinPaths(int e)
+    {
+        int a = edgeDots[2 * e];
+        int b = edgeDots[2 * e + 1];
+        joinedEnds[2 * e] = -1;
+        joinedEnds[2 * e + 1] = -1;
+        loopLength[e] = 0;
+        if (mate[a] < 0 || mate[b] < 0) return;
+
+        // a loop
+        if (mate[a] == b) {
+            loopLength[e] = pathLength[a] + 1;
+            changePath(a, -1, 0);
+            changePath(b, -1, 0);
+            return;
+        }
+
+        // a longer path, from the far end of a's path to the far end of b's
+        int endA = mate[a];
+        int endB = mate[b];
+        int length = pathLength[a] + pathLength[b] + 1;
+        if (a != endA) changePath(a, -1, 0);
+        if (b != endB) changePath(b, -1, 0);
+        changePath(endA, endB, length);
+        changePath(endB, endA, length);
+        joinedEnds[2 * e] = endA;
+        joinedEnds[2 * e + 1] = endB;
+    }
+
+    /**
+     * Changes the path information at a dot, logging the old values so undo can restore them.
+     */
+    private void changePath(int dot, int newMate, int newLength)
+    {
+        mateLog[mateLogSize++] = dot;
+        mateLog[mateLogSize++] = mate[dot];
+        mateLog[mateLogSize++] = pathLength[dot];
+        mate[dot] = newMate;
+        pathLength[dot] = newLength;
+    }
+
+    /**
+     * Undoes every decision made after the trail held mark edges.
+     */
+    private void undo(int mark)
+    {
+        while (trailSize > mark) {
+            int e = trail[--trailSize];
+            byte value = state[e];
+            state[e] = UNKNOWN;
+            int[] cellCounts = value == ON ? cellOn : cellOff;
+            int[] dotCounts = value == ON ? dotOn : dotOff;
+            for (int i = 2 * e; i < 2 * e + 2; i++) {
+                if (edgeCells[i] >= 0) cellCounts[edgeCells[i]]--;
+                dotCounts[edgeDots[i]]--;
+            }
+            if (value == ON) onCount--;
+
+            // put the paths back exactly as they were
+            while (mateLogSize > mateLogMark[trailSize]) {
+                mateLogSize -= 3;
+                int dot = mateLog[mateLogSize];
+                mate[dot] = mateLog[mateLogSize + 1];
+                pathLength[dot] = mateLog[mateLogSize + 2];
+            }
+        }
+    }
+
+    /**
+     * Applies the BASIC rules to every edge decided since the trail held from edges,
+     * and to everything those rules decide in turn.
+     * Returns false if a contradiction is found.
+     */
+    private boolean propagate(int from)
+    {
+        for (int i = from; i < trailSize; i++) {
+            int e = trail[i];
+            for (int j = 2 * e; j < 2 * e + 2; j++) {
+                if (edgeCells[j] >= 0 && !checkCell(edgeCells[j])) return false;
+                if (!checkDot(edgeDots[j])) return false;
+            }
+            if (state[e] == ON && !checkLoop(e)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Makes the edges around a cell agree with its number.
+     */
+    private boolean checkCell(int cell)
+    {
+        int required = clues[cell];
+        if (required < 0) return true;
+
+        int on = cellOn[cell];
+        int unknown = 4 - on - cellOff[cell];
+        if (on > required || on + unknown < required) return false;
+        if (unknown == 0) return true;
+
+        // all the lines are drawn, or all the remaining lines are needed
+        if (on == required) return setAll(cellEdges, 4 * cell, 4, OFF);
+        if (on + unknown == required) return setAll(cellEdges, 4 * cell, 4, ON);
+        return true;
+    }
+
+    /**
+     * Makes the edges at a dot have either zero or two lines.
+     */
+    private boolean checkDot(int dot)
+    {
+        int on = dotOn[dot];
+        int unknown = degree(dot) - on - dotOff[dot];
+        if (on > 2 || on == 1 && unknown == 0) return false;
+        if (unknown == 0) return true;
+
+        // the path through the dot is complete, a dangling end must continue, or a dead end can't be used
+        if (on == 2) return setAll(dotEdges, 4 * dot, 4, OFF);
+        if (on == 1 && unknown == 1) return setAll(dotEdges, 4 * dot, 4, ON);
+        if (on == 0 && unknown == 1) return setAll(dotEdges, 4 * dot, 4, OFF);
+        return true;
+    }
+
+    /**
+     * Sets every undecided edge in edges[from..from+count) to value.
+     */
+    private boolean setAll(int[] edges, int from, int count, byte value)
+    {
+        for (int i = from; i < from + count; i++) {
+            if (edges[i] >= 0 && state[edges[i]] == UNKNOWN) set(edges[i], value);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of edges at a dot.
+     */
+    private int degree(int dot)
+    {
+        int degree = 0;
+        for (int i = 4 * dot; i < 4 * dot + 4; i++)
+            if (dotEdges[i] >= 0) degree++;
+        return degree;
+    }
+
+    /**
+     * Checks the path through the newly drawn edge e, using the path ends recorded when it was drawn.
+     * A closed loop must use every drawn line, in which case everything else is off.
+     * Otherwise the edge joining the two ends of the path (if any) would close a loop too early.
+     */
+    private boolean checkLoop(int e)
+    {
+        // closed loop
+        if (loopLength[e] > 0) {
+            if (loopLength[e] != onCount) return false;
+            for (int i = 0; i < edgeCount; i++)
+                if (state[i] == UNKNOWN) set(i, OFF);
+            return true;
+        }
+
+        // joining the ends would leave the other lines disconnected (unless the path has grown since)
+        int endA = joinedEnds[2 * e];
+        int endB = joinedEnds[2 * e + 1];
+        if (endA >= 0 && mate[endA] == endB && pathLength[endA] < onCount) {
+            int closing = edgeBetween(endA, endB);
+            if (closing >= 0 && state[closing] == UNKNOWN) set(closing, OFF);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the dot at the other end of edge e.
+     */
+    private int otherDot(int e, int dot)
+    {
+        return edgeDots[2 * e] == dot ? edgeDots[2 * e + 1] : edgeDots[2 * e];
+    }
+
+    /**
+     * Returns the edge joining two dots, or -1 if they aren't neighbours.
+     */
+    private int edgeBetween(int a, int b)
+    {
+        for (int i = 4 * a; i < 4 * a + 4; i++) {
+            int e = dotEdges[i];
+            if (e >= 0 && otherDot(e, a) == b) return e;
+        }
+        return -1;
+    }
+
+    /**
+     * Works out which squares must be the same colour (both inside or both outside the loop)
+     * and which must be different, decides the edges that follow from it,
+     * then applies the BASIC rules to them.
+     * Returns the number of edges deduced, or -1 if the puzzle has no solution.
+     */
+    private int colour()
+    {
+        int mark = trailSize;
+        int deduced = colourEdges();
+        if (deduced <= 0) return deduced;
+
+        int current = tier;
+        tier = BASIC;
+        boolean ok = propagate(mark);
+        tier = current;
+        return ok ? deduced : -1;
+    }
+
+    /**
+     * Uses COLOUR, then BASIC, until neither decides anything more.
+     * Returns false if a contradiction is found.
+     */
+    private boolean colourAndPropagate()
+    {
+        while (true) {
+            int mark = trailSize;
+            int deduced = colourEdges();
+            if (deduced < 0) return false;
+            if (deduced == 0) return true;
+            if (!propagate(mark)) return false;
+        }
+    }
+
+    /**
+     * Rebuilds the colouring from the decided edges, and decides the edges it forces.
+     * Returns the number of edges decided, or -1 if the colouring is contradictory.
+     */
+    private int colourEdges()
+    {
+        // a line separates different colours, a crossed-out edge joins the same colour
+        colouring.reset();
+        for (int e = 0; e < edgeCount; e++) {
+            if (state[e] != UNKNOWN && !colouring.union(side(e, 0), side(e, 1), state[e] == ON)) return -1;
+        }
+
+        // no dot can have lines on all four sides, so its diagonals can't both match unless all four do
+        for (int r = 1; r < n; r++) {
+            for (int c = 1; c < n; c++) {
+                int a = (r - 1) * n + c - 1;    // top left
+                int b = a + 1;                  // top right
+                int d = r * n + c;              // bottom right
+                int e = d - 1;                  // bottom left
+                boolean sameAD = colouring.relation(a, d) == CellColouring.SAME;
+                boolean sameBE = colouring.relation(b, e) == CellColouring.SAME;
+                if (!sameAD && !sameBE) continue;
+
+                boolean apart = colouring.relation(a, b) == CellColouring.DIFFERENT || colouring.relation(a, e) == CellColouring.DIFFERENT
+                             || colouring.relation(d, b) == CellColouring.DIFFERENT || colouring.relation(d, e) == CellColouring.DIFFERENT;
+                boolean ok = true;
+                if (sameAD && sameBE) ok = colouring.union(a, b, false);
+                else if (sameAD && apart) ok = colouring.union(b, e, true);
+                else if (sameBE && apart) ok = colouring.union(a, d, true);
+                if (!ok) return -1;
+            }
+        }
+
+        // edges between squares of known colours
+        int deduced = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (state[e] != UNKNOWN) continue;
+            int relation = colouring.relation(side(e, 0), side(e, 1));
+            if (relation == CellColouring.UNKNOWN) continue;
+            set(e, relation == CellColouring.DIFFERENT ? ON : OFF);
+            deduced++;
+        }
+
+        // numbers whose neighbours' colours are known relative to each other
+        for (int cell = 0; cell < n * n; cell++) {
+            if (clues[cell] < 0 || cellOn[cell] + cellOff[cell] == 4) continue;
+            int forced = colourNumber(cell);
+            if (forced < 0) return -1;
+            deduced += forced;
+        }
+        return deduced;
+    }
+
+    /**
+     * Returns the square on one side (0 or 1) of edge e; n * n stands for outside the board.
+     */
+    private int side(int e, int which)
+    {
+        int cell = edgeCells[2 * e + which];
+        return cell >= 0 ? cell : n * n;
+    }
+
+    /**
+     * Groups the undecided edges around a numbered cell by the colour set of the square on
+     * their other side: each group adds a fixed number of lines depending only on whether
+     * the set is the same colour as the cell. Any group that can only go one way is decided.
+     * Returns the number of edges decided, or -1 if no way of colouring the groups fits the number.
+     */
+    private int colourNumber(int cell)
+    {
+        int groups = 0;
+        for (int i = 4 * cell; i < 4 * cell + 4; i++) {
+            int e = cellEdges[i];
+            if (state[e] != UNKNOWN) continue;
+            int neighbour = side(e, 0) == cell ? side(e, 1) : side(e, 0);
+            int root = colouring.representative(neighbour);
+            int differs = colouring.parityToRepresentative(neighbour);
+
+            int g = 0;
+            while (g < groups && groupRoots[g] != root) g++;
+            if (g == groups) {
+                groupRoots[groups++] = root;
+                groupOn[2 * g] = 0;
+                groupOn[2 * g + 1] = 0;
+            }
+
+            // with the set the same colour as the cell, the edge is on if the neighbour differs from the set
+            groupOn[2 * g] += differs;
+            groupOn[2 * g + 1] += 1 - differs;
+        }
+
+        // try every way of colouring the groups
+        for (int i = 0; i < 2 * groups; i++) groupPossible[i] = false;
+        boolean any = false;
+        for (int way = 0; way < 1 << groups; way++) {
+            int on = cellOn[cell];
+            for (int g = 0; g < groups; g++) on += groupOn[2 * g + (way >> g & 1)];
+            if (on != clues[cell]) continue;
+            any = true;
+            for (int g = 0; g < groups; g++) groupPossible[2 * g + (way >> g & 1)] = true;
+        }
+        if (!any) return -1;
+
+        int deduced = 0;
+        for (int g = 0; g < groups; g++) {
+            if (groupPossible[2 * g] && groupPossible[2 * g + 1]) continue;
+            int way = groupPossible[2 * g] ? 0 : 1;
+            for (int i = 4 * cell; i < 4 * cell + 4; i++) {
+                int e = cellEdges[i];
+                if (state[e] != UNKNOWN) continue;
+                int neighbour = side(e, 0) == cell ? side(e, 1) : side(e, 0);
+                if (colouring.representative(neighbour) != groupRoots[g]) continue;
+                int differs = colouring.parityToRepresentative(neighbour) ^ way;
+                set(e, differs == 1 ? ON : OFF);
+                deduced++;
+            }
+        }
+        return deduced;
+    }
+
+    /**
+     * Assumes each undecided edge is on and then off; if BASIC finds a contradiction
+     * the edge must be the other way.
+     * Returns the number of edges deduced, or -1 if the puzzle has no solution.
+     */
+    private int trial()
+    {
+        int deduced = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (state[e] != UNKNOWN) continue;
+            if (shouldStop()) return deduced;
+
+            for (byte value = ON; value <= OFF; value++) {
+                int mark = trailSize;
+                probing = true;
+                boolean possible = set(e, value) && propagate(mark);
+                undo(mark);
+                probing = false;
+
+                if (!possible) {
+                    byte other = value == ON ? OFF : ON;
+                    set(e, other);
+                    tier = BASIC;
+                    boolean ok = propagate(mark);
+                    tier = TRIAL;
+                    if (!ok) return -1;
+                    deduced++;
+                    break;
+                }
+            }
+        }
+        return deduced;
+    }
+
+    /**
+     * Backtracks over the undecided edges, using BASIC after each guess.
+     * Returns true if a solution was found; if not, every guess is undone.
+     * A copy searching a region instead goes through every answer for the region (see recordPairing),
+     * returning true only if it gave up early.
+     *
+     * The guesses are kept on an explicit stack of primitive arrays rather than the call stack,
+     * since a big board can need a guess for most of its edges at once.
+     */
+    private boolean search()
+    {
+        int top = 0;                // the guesses on the stack
+        boolean failed = false;     // whether the guess on top has just failed
+        while (true) {
+            if (shouldStop()) {
+                if (top > 0) undo(guessMark[0]);
+                return false;
+            }
+
+            if (!failed) {
+                // a new node: guess an edge
+                searchNodes++;
+                if (focus != null && searchNodes > MAX_REGION_NODES) {
+                    regionAnswers.capped = true;
+                    return true;
+                }
+                int e = chooseEdge();
+                if (e < 0) {
+                    if (focus != null ? recordPairing() : onCount > 0) return true;
+                    if (top == 0) return false;
+                    failed = true;
+                    continue;
+                }
+                guessEdge[top] = e;
+                guessValue[top] = random != null && random.nextBoolean() ? OFF : ON;
+                guessTries[top] = 0;
+                guessMark[top] = trailSize;
+                top++;
+            } else {
+                // undo the guess on top, and try its other value, or give up on it if both failed
+                int g = top - 1;
+                undo(guessMark[g]);
+                if (guessTries[g] == 2) {
+                    if (--top == 0) return false;
+                    continue;
+                }
+                guessValue[g] = (byte) (ON + OFF - guessValue[g]);
+            }
+
+            int g = top - 1;
+            guessTries[g]++;
+            int mark = guessMark[g];
+            failed = !(set(guessEdge[g], guessValue[g]) && propagate(mark) && (!useColour || colourAndPropagate()));
+        }
+    }
+
+    /**
+     * Chooses the next edge to guess, using the heuristic.
+     * Returns -1 if every edge is decided.
+     */
+    private int chooseEdge()
+    {
+        if (focus != null) return chooseInRegion();
+        if (heuristic == CONSTRAINED) {
+            int e = chooseConstrained();
+            if (e >= 0) return e;
+        }
+        return chooseDangling();
+    }
+
+    /**
+     * Chooses an undecided edge of the numbered square with the fewest undecided edges.
+     * Returns -1 if every numbered square is decided.
+     */
+    private int chooseConstrained()
+    {
+        int cellCount = n * n;
+        int start = random == null ? 0 : random.nextInt(cellCount);
+        int best = -1;
+        int fewest = 5;
+        for (int k = 0; k < cellCount && fewest > 1; k++) {
+            int cell = (start + k) % cellCount;
+            if (clues[cell] < 0) continue;
+            int undecided = 4 - cellOn[cell] - cellOff[cell];
+            if (undecided > 0 && undecided < fewest) {
+                best = cell;
+                fewest = undecided;
+            }
+        }
+        if (best < 0) return -1;
+        for (int i = 4 * best; i < 4 * best + 4; i++)
+            if (state[cellEdges[i]] == UNKNOWN) return cellEdges[i];
+        return -1;
+    }
+
+    /**
+     * Chooses an edge continuing a dangling end if possible, or else the first undecided edge.
+     * Returns -1 if every edge is decided.
+     */
+    private int chooseDangling()
+    {
+        int start = random == null ? 0 : random.nextInt(dotCount);
+        int first = -1;
+        for (int k = 0; k < dotCount; k++) {
+            int dot = (start + k) % dotCount;
+            for (int i = 4 * dot; i < 4 * dot + 4; i++) {
+                int e = dotEdges[i];
+                if (e < 0 || state[e] != UNKNOWN) continue;
+                if (dotOn[dot] == 1) return e;
+                if (first < 0) first = e;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Chooses an edge of the region continuing a dangling end if possible, or else its first undecided edge.
+     * Returns -1 if every edge of the region is decided.
+     */
+    private int chooseInRegion()
+    {
+        int first = -1;
+        for (int e : focus) {
+            if (state[e] != UNKNOWN) continue;
+            if (dotOn[edgeDots[2 * e]] == 1 || dotOn[edgeDots[2 * e + 1]] == 1) return e;
+            if (first < 0) first = e;
+        }
+        return first;
+    }
+
+    /**
+     * Returns the solution horizontally; only meaningful after solve() returns true.
+     */
+    public boolean[][] getHorizontal()
+    {
+        boolean[][] horizontal = new boolean[n + 1][n];
+        for (int r = 0; r <= n; r++)
+            for (int c = 0; c < n; c++)
+                horizontal[r][c] = state[horizontalEdge(r, c)] == ON;
+        return horizontal;
+    }
+
+    /**
+     * Returns the solution vertically; only meaningful after solve() returns true.
+     */
+    public boolean[][] getVertical()
+    {
+        boolean[][] vertical = new boolean[n][n + 1];
+        for (int r = 0; r < n; r++)
+            for (int c = 0; c <= n; c++)
+                vertical[r][c] = state[verticalEdge(r, c)] == ON;
+        return vertical;
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN) of each horizontal segment.
+     */
+    public byte[][] getHorizontalStates()
+    {
+        byte[][] horizontal = new byte[n + 1][n];
+        for (int r = 0; r <= n; r++)
+            for (int c = 0; c < n; c++)
+                horizontal[r][c] = state[horizontalEdge(r, c)];
+        return horizontal;
+    }
+
+    /**
+     * Returns the state (ON, OFF or UNKNOWN) of each vertical segment.
+     */
+    public byte[][] getVerticalStates()
+    {
+        byte[][] vertical = new byte[n][n + 1];
+        for (int r = 0; r < n; r++)
+            for (int c = 0; c <= n; c++)
+                vertical[r][c] = state[verticalEdge(r, c)];
+        return vertical;
+    }
+
+    /**
+     * Replaces the current solution in p with the solver's solution.
+     */
+    public void applyTo(Puzzle p)
+    {
+        applyLines(getHorizontalStates(), getVerticalStates(), p);
+    }
+
+    /**
+     * Makes the lines in p exactly the segments that are ON in horizontal and vertical, a word at a time.
+     */
+    private static void applyLines(byte[][] horizontal, byte[][] vertical, Puzzle p)
+    {
+        SolutionState target = p.getState();
+        for (int r = 0; r < horizontal.length; r++)
+            for (int w = 0; w < (horizontal[r].length + 63) / 64; w++)
+                target.setHorizontalLines(r, w, onWord(horizontal[r], w));
+        for (int r = 0; r < vertical.length; r++)
+            for (int w = 0; w < (vertical[r].length + 63) / 64; w++)
+                target.setVerticalLines(r, w, onWord(vertical[r], w));
+    }
+
+    /**
+     * Returns which of segments 64 * w to 64 * w + 63 of row are ON, one bit each.
+     */
+    private static long onWord(byte[] row, int w)
+    {
+        long word = 0;
+        for (int c = 64 * w; c < Math.min(row.length, 64 * w + 64); c++)
+            if (row[c] == ON) word |= 1L << c;
+        return word;
+    }
+
+    /**
+     * Returns the number of edges decided at each tier.
+     */
+    public int[] getSteps()
+    {
+        return steps.clone();
+    }
+
+    /**
+     * Returns the number of guesses made while searching.
+     */
+    public long getSearchNodes()
+    {
+        return searchNodes;
+    }
+
+    /**
+     * Returns the strongest tier that solve() needed, or -1 if it hasn't been run.
+     */
+    public int getHardestTier()
+    {
+        return hardestTier;
+    }
+
+    /**
+     * Solves p in the background on the common pool, stopping once budgetMillis have passed.
+     */
+    public static CompletableFuture<Result> solveAsync(Puzzle p, long budgetMillis)
+    {
+        return solveAsync(p, budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves p on executor, stopping once budgetMillis have passed since this call.
+     * The result is the solution, the edges proved before the budget ran out, or that p has no solution.
+     * Cancelling the future stops the solve at its next check and lets go of the solver.
+     */
+    public static CompletableFuture<Result> solveAsync(Puzzle p, long budgetMillis, Executor executor)
+    {
+        return solveAsync(p, budgetMillis, executor, solver -> {});
+    }
+
+    /**
+     * Solves p on executor as solveAsync does, with the solver set up by configure first.
+     */
+    public static CompletableFuture<Result> solveAsync(Puzzle p, long budgetMillis, Executor executor, Consumer<Solver> configure)
+    {
+        long start = System.nanoTime();
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) return;    // cancelled before it started
+                try {
+                    Solver solver = new Solver(p);
+                    configure.accept(solver);
+                    solver.setDeadline(start + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+                    future.whenComplete((result, failure) -> solver.cancel());
+
+                    boolean solved = solver.solve();
+                    int status = solved ? Result.SOLVED : solver.isStopped() ? Result.UNSOLVED : Result.UNSOLVABLE;
+                    future.complete(new Result(status, solver.getHorizontalStates(), solver.getVerticalStates(), System.nanoTime() - start));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
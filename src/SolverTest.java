@@ -0,0 +1,240 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * This class provides unit test cases for the Solver and Grader classes.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class SolverTest
+{
+    private String[] boards = {"eg2_1.txt", "eg2_2.txt", "eg2_3.txt", "eg2_4.txt", "eg3_1.txt", "eg3_2.txt", "eg3_3.txt",
+                               "eg5_1.txt", "eg5_2.txt", "eg7_1.txt", "eg7_2.txt", "eg10_1.txt"};
+
+    // Returns the puzzle with the given rows.
+    private Puzzle puzzle(String... rows)
+    {
+        ArrayList<String> lines = new ArrayList<>();
+        for (String row : rows) lines.add(row);
+        return new Puzzle(lines);
+    }
+
+    @Test
+    public void testsolve()
+    {
+        for (String board : boards)
+        {
+            Puzzle p = new Puzzle(board);
+            Solver s = new Solver(p);
+            assertTrue(board, s.solve());
+            s.applyTo(p);
+            assertEquals(board, "Finished", AnalyzeSolution.finished(p));
+        }
+    }
+
+    @Test
+    public void testapplyTo()
+    {
+        Puzzle p = new Puzzle("eg3_1.txt");
+        p.horizontalClick(1, 1);
+        p.verticalClick(2, 2);
+        Solver s = new Solver(p);
+        assertTrue(s.solve());
+        s.applyTo(p);
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+        assertTrue(java.util.Arrays.deepEquals(s.getHorizontal(), p.getHorizontal()));
+        assertTrue(java.util.Arrays.deepEquals(s.getVertical(), p.getVertical()));
+    }
+
+    @Test
+    public void testunsolvable()
+    {
+        assertFalse(new Solver(puzzle("0 0", "0 0")).solve());
+        assertFalse(new Solver(puzzle("3 3", "3 3")).solve());
+    }
+
+    @Test
+    public void testtiers()
+    {
+        // every line is forced by the numbers
+        Solver s = new Solver(new Puzzle("eg5_1.txt"));
+        assertTrue(s.solve());
+        assertEquals(Solver.BASIC, s.getHardestTier());
+        assertEquals(0, s.getSearchNodes());
+
+        // a blank board can only be solved by guessing
+        s = new Solver(puzzle("-1 -1 -1", "-1 -1 -1", "-1 -1 -1"));
+        assertTrue(s.solve());
+        assertEquals(Solver.SEARCH, s.getHardestTier());
+        assertTrue(s.getSearchNodes() > 0);
+
+        int total = 0;
+        for (int steps : s.getSteps()) total += steps;
+        assertTrue(total >= 2 * 3 * 4);
+    }
+
+    @Test
+    public void testgrade()
+    {
+        ArrayList<java.nio.file.Path> paths = new ArrayList<>();
+        try {
+            for (String board : boards) paths.add(java.nio.file.Paths.get(getClass().getResource(board).toURI()));
+            java.util.List<Grader.Grade> grades = Grader.gradeAll(paths, 4);
+            assertEquals(boards.length, grades.size());
+            for (int i = 0; i < boards.length; i++)
+            {
+                assertEquals(boards[i], grades.get(i).name);
+                assertTrue(boards[i], grades.get(i).solved);
+            }
+            assertTrue(Grader.summary(grades, 1).startsWith(boards.length + " puzzles"));
+        } catch (InterruptedException | java.net.URISyntaxException e) {
+            fail(e.toString());
+        }
+    }
+
+    @Test
+    public void testsolveAsync() throws Exception
+    {
+        Solver.Result result = Solver.solveAsync(new Puzzle("eg7_2.txt"), 10000).get();
+        assertEquals(Solver.Result.SOLVED, result.status);
+        Puzzle p = new Puzzle("eg7_2.txt");
+        result.applyTo(p);
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+
+        assertEquals(Solver.Result.UNSOLVABLE, Solver.solveAsync(puzzle("3 3", "3 3"), 10000).get().status);
+    }
+
+    @Test
+    public void testdeadline() throws Exception
+    {
+        // a board that takes far longer than its budget
+        LoopGenerator generator = new LoopGenerator(60, 1);
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(generator.getClues(0.3, 1)));
+        long start = System.nanoTime();
+        Solver.Result result = Solver.solveAsync(p, 200).get();
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertEquals(Solver.Result.UNSOLVED, result.status);
+
+        // what was proved agrees with the loop the board was made from
+        boolean[][] horizontal = generator.getHorizontal();
+        boolean[][] vertical = generator.getVertical();
+        int decided = 0;
+        for (int r = 0; r <= 60; r++) {
+            for (int c = 0; c < 60; c++) {
+                if (result.horizontal[r][c] != Solver.UNKNOWN) decided++;
+                if (result.horizontal[r][c] != Solver.UNKNOWN) assertEquals(horizontal[r][c], result.horizontal[r][c] == Solver.ON);
+                if (result.vertical[c][r] != Solver.UNKNOWN) assertEquals(vertical[c][r], result.vertical[c][r] == Solver.ON);
+            }
+        }
+        assertTrue(decided > 0);
+    }
+
+    @Test
+    public void testcancel() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Puzzle hard = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(60, 1).getClues(0.3, 1)));
+            CompletableFuture<Solver.Result> future = Solver.solveAsync(hard, 60000, executor);
+            Thread.sleep(200);
+            assertTrue(future.cancel(true));
+
+            // the worker is free again straight away
+            Solver.Result next = Solver.solveAsync(new Puzzle("eg5_1.txt"), 10000, executor).get(5, TimeUnit.SECONDS);
+            assertEquals(Solver.Result.SOLVED, next.status);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testregions()
+    {
+        // the regions left after the deductions are searched separately, then joined into one loop
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(40, 6).getClues(0.4, 6)));
+        Solver s = new Solver(p);
+        s.setDeadline(System.nanoTime() + 60_000_000_000L);
+        assertTrue(s.solve());
+        assertTrue(s.getRegionCount() > 1);
+        s.applyTo(p);
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+
+        // with or without regions, the same boards are solved
+        for (int seed = 1; seed <= 10; seed++) {
+            p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(25, seed).getClues(0.6, seed)));
+            for (boolean regions : new boolean[] {true, false}) {
+                Puzzle copy = p.fork();
+                s = new Solver(copy);
+                s.setRegions(regions);
+                assertTrue("seed " + seed, s.solve());
+                s.applyTo(copy);
+                assertEquals("seed " + seed, "Finished", AnalyzeSolution.finished(copy));
+            }
+        }
+    }
+
+    @Test
+    public void testlarge() throws Exception
+    {
+        // a 300x300 board, solved on a thread with a small stack, since the search keeps its own
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(300, 1).getClues(0.7, 1)));
+        boolean[] solved = new boolean[1];
+        Solver s = new Solver(p, 256L << 20);
+        Thread thread = new Thread(null, () -> solved[0] = s.solve(), "solver", 128 * 1024);
+        thread.start();
+        thread.join();
+        assertTrue(solved[0]);
+        assertEquals(Solver.SEARCH, s.getHardestTier());
+        s.applyTo(p);
+        assertEquals("Finished", AnalyzeSolution.finished(p));
+    }
+
+    @Test
+    public void testmemory()
+    {
+        // the memory needed grows with the number of squares, and nothing else
+        assertTrue(Solver.footprint(300) > 3 * Solver.footprint(150));
+        assertTrue(Solver.footprint(300) < 5 * Solver.footprint(150));
+        assertTrue(Solver.footprint(300) < 64L << 20);
+
+        Puzzle p = new Puzzle(PuzzleDefinition.intern(new LoopGenerator(40, 6).getClues(0.4, 6)));
+        try {
+            new Solver(p, Solver.footprint(40) - 1);
+            fail("the limit is too small");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("40x40"));
+        }
+
+        // with no room for region copies, the whole board is searched
+        Solver s = new Solver(p, Solver.footprint(40));
+        s.setDeadline(System.nanoTime() + 1_000_000_000L);
+        s.solve();
+        assertEquals(0, s.getRegionCount());
+    }
+
+    @Test
+    public void testcolouring()
+    {
+        CellColouring colouring = new CellColouring(5);
+        assertEquals(CellColouring.UNKNOWN, colouring.relation(0, 1));
+        assertTrue(colouring.union(0, 1, true));
+        assertTrue(colouring.union(1, 2, true));
+        assertTrue(colouring.union(3, 4, false));
+        assertEquals(CellColouring.SAME, colouring.relation(0, 2));
+        assertEquals(CellColouring.DIFFERENT, colouring.relation(2, 1));
+        assertEquals(CellColouring.UNKNOWN, colouring.relation(2, 3));
+
+        assertTrue(colouring.union(4, 0, true));
+        assertEquals(CellColouring.DIFFERENT, colouring.relation(3, 2));
+        assertEquals(CellColouring.SAME, colouring.relation(3, 1));
+        assertFalse(colouring.union(3, 1, true));
+        assertTrue(colouring.union(3, 1, false));
+
+        colouring.reset();
+        assertEquals(CellColouring.UNKNOWN, colouring.relation(0, 1));
+    }
+}
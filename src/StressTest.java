@@ -0,0 +1,547 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * This class provides randomized differential tests: the optimised parts of AnalyzeSolution,
+ * SolutionState, PuzzleDefinition and RevealMask are checked against copies of the original,
+ * straightforward implementations (the reference methods below), on random edge states of
+ * boards from 2x2 to 500x500. It also checks the large boards in fixtures/ against their
+ * known verdicts (see fixtures/verdicts.txt; main regenerates them).
+ *
+ * By default over a million edge states are checked against the references, in a few minutes;
+ * most of them in testtoggles, which checks the cheap results after every toggle on boards up to 60x60.
+ * It runs headless. The amount of work is multiplied by the system property stress.scale (default 1).
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class StressTest
+{
+    private Random random;
+    private int scale;
+    private long states;        // the edge states checked against the references
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        random = new Random(42);
+        scale = Integer.getInteger("stress.scale", 1);
+        states = 0;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // The reference implementations, as AnalyzeSolution and Puzzle originally had them.
+
+    private static int referenceLinesAroundSquare(Puzzle p, int r, int c)
+    {
+        boolean[][] horizontal = p.getHorizontal();
+        boolean[][] vertical = p.getVertical();
+        int lines = 0;
+        if (r >= 0 && r < p.size() && c >= 0 && c < p.size()) {
+            if (horizontal[r][c]) lines++;
+            if (vertical[r][c]) lines++;
+            if (horizontal[r + 1][c]) lines++;
+            if (vertical[r][c + 1]) lines++;
+        }
+        return lines;
+    }
+
+    private static int referenceNearestLineDistance(Puzzle p, int inputRow, int inputColumn)
+    {
+        boolean[][] horizontal = p.getHorizontal();
+        boolean[][] vertical = p.getVertical();
+        int size = vertical.length;
+        double cellRowMiddle = inputRow + 0.5;
+        double cellColumnMiddle = inputColumn + 0.5;
+        double distance = -1.0;
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                double horizontalDistance = Math.abs((c + 0.5) - cellColumnMiddle) + Math.abs(r - cellRowMiddle);
+                if (c < size && horizontal[r][c] && (distance == -1.0 || horizontalDistance < distance)) distance = horizontalDistance;
+                double verticalDistance = Math.abs(c - cellColumnMiddle) + Math.abs((r + 0.5) - cellRowMiddle);
+                if (r < size && vertical[r][c] && (distance == -1.0 || verticalDistance < distance)) distance = verticalDistance;
+            }
+        }
+        return (int) distance;
+    }
+
+    private static ArrayList<int[]> referenceBadSquares(Puzzle p)
+    {
+        ArrayList<int[]> badSquares = new ArrayList<int[]>();
+        for (int r = 0; r < p.size(); r++) {
+            for (int c = 0; c < p.size(); c++) {
+                int requiredLines = p.getPuzzle()[r][c];
+                int drawnLines = referenceLinesAroundSquare(p, r, c);
+                if (drawnLines != requiredLines && requiredLines != -1) badSquares.add(new int[]{r, c});
+            }
+        }
+        return badSquares;
+    }
+
+    private static ArrayList<int[]> referenceGetConnections(Puzzle p, int r, int c)
+    {
+        boolean[][] horizontal = p.getHorizontal();
+        boolean[][] vertical = p.getVertical();
+        ArrayList<int[]> connections = new ArrayList<int[]>();
+        if (r < 0 || r > p.size() + 1 || c < 0 || c > p.size() + 1) return null;
+        if (c < p.size() && horizontal[r][c]) connections.add(new int[] {r, c + 1});
+        if (r < p.size() && vertical[r][c]) connections.add(new int[] {r + 1, c});
+        if (c > 0 && horizontal[r][c - 1]) connections.add(new int[] {r, c - 1});
+        if (r > 0 && vertical[r - 1][c]) connections.add(new int[] {r - 1, c});
+        return connections;
+    }
+
+    private static int[] referenceLineSegments(Puzzle p)
+    {
+        boolean[][] horizontal = p.getHorizontal();
+        boolean[][] vertical = p.getVertical();
+        int[] lineSegments = new int[] {0, 0, 0};
+        for (int r = 0; r < p.size(); r++) {
+            for (int c = 0; c < p.size(); c++) {
+                if (horizontal[r][c]) lineSegments[0]++;
+                if (vertical[r][c]) lineSegments[0]++;
+                if (c == p.size()-1 && vertical[r][c + 1]) lineSegments[0]++;
+                if (r == p.size()-1 && horizontal[r + 1][c]) lineSegments[0]++;
+                if (lineSegments[1] == 0 && lineSegments[2] == 0) {
+                    if (horizontal[r][c] || vertical[r][c]) lineSegments = new int[] {lineSegments[0], r, c};
+                    if (r == p.size()-1 && vertical[r][c + 1]) lineSegments = new int[] {lineSegments[0], r, c + 1};
+                    if (c == p.size()-1 && horizontal[r + 1][c]) lineSegments = new int[] {lineSegments[0], r + 1, c};
+                }
+            }
+        }
+        return lineSegments;
+    }
+
+    private static String referenceTracePath(Puzzle p, int initialRow, int initialColumn)
+    {
+        int[] point = new int[] {-1, -1};
+        int[] nextPoint = new int[] {initialRow, initialColumn};
+        int pathLinesCount = 0;
+        while (pathLinesCount == 0 || !(nextPoint[0] == initialRow && nextPoint[1] == initialColumn)) {
+            int[] lastPoint = point;
+            point = nextPoint;
+            ArrayList<int[]> connections = referenceGetConnections(p, point[0], point[1]);
+            if (connections.size() == 0) return "No path";
+            if (connections.size() == 1) return "Dangling end";
+            if (connections.size() > 2) return "Branching line";
+            pathLinesCount++;
+            nextPoint = (connections.get(0)[0] == lastPoint[0] && connections.get(0)[1] == lastPoint[1]) ? connections.get(1) : connections.get(0);
+        }
+        return "" + pathLinesCount + "";
+    }
+
+    private static String referenceFinished(Puzzle p)
+    {
+        int[] lineSegments = referenceLineSegments(p);
+        int drawnLinesCount = lineSegments[0];
+        int pathLinesCount = 0;
+        if (referenceBadSquares(p).size() > 0) return "Wrong number";
+        String tracePathResult = referenceTracePath(p, lineSegments[1], lineSegments[2]);
+        try {
+            pathLinesCount = Integer.parseInt(tracePathResult);
+        } catch (NumberFormatException e) {
+            return tracePathResult;
+        }
+        if (pathLinesCount != drawnLinesCount) return "Disconnected lines";
+        return "Finished";
+    }
+
+    // Works out the usable grid lines for puzzle, as Puzzle originally did.
+    private static boolean[][][] referenceGrid(int[][] puzzle)
+    {
+        int size = puzzle.length;
+        boolean[][] horizontal = new boolean[size + 1][size];
+        boolean[][] vertical = new boolean[size][size + 1];
+        for (boolean[] row : horizontal) Arrays.fill(row, true);
+        for (boolean[] row : vertical) Arrays.fill(row, true);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (puzzle[r][c] == 0) {
+                    horizontal[r][c] = false;
+                    vertical[r][c] = false;
+                    horizontal[r + 1][c] = false;
+                    vertical[r][c + 1] = false;
+                }
+            }
+        }
+        referenceDisableDeadEndPaths(size, horizontal, vertical);
+        return new boolean[][][] {horizontal, vertical};
+    }
+
+    private static void referenceDisableDeadEndPaths(int size, boolean[][] horizontal, boolean[][] vertical)
+    {
+        int disabledPaths = 0;
+        for (int r = 0; r <= size; r++) {
+            for (int c = 0; c <= size; c++) {
+                int pointPathways = 0;
+                if (c < size && horizontal[r][c]) pointPathways++;
+                if (c > 0 && horizontal[r][c - 1]) pointPathways++;
+                if (r < size && vertical[r][c]) pointPathways++;
+                if (r > 0 && vertical[r - 1][c]) pointPathways++;
+                if (pointPathways == 1) {
+                    if (c < size) horizontal[r][c] = false;
+                    if (c > 0) horizontal[r][c - 1] = false;
+                    if (r < size) vertical[r][c] = false;
+                    if (r > 0) vertical[r - 1][c] = false;
+                    disabledPaths++;
+                }
+            }
+        }
+        if (disabledPaths > 0) referenceDisableDeadEndPaths(size, horizontal, vertical);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Random boards and edge states.
+
+    // Returns a random board size, mostly small, sometimes up to max.
+    private int randomSize(int max)
+    {
+        int kind = random.nextInt(10);
+        if (kind < 6) return 2 + random.nextInt(11);
+        if (kind < 9 || max <= 60) return 13 + random.nextInt(48);
+        return 61 + random.nextInt(max - 60);
+    }
+
+    // Returns random numbers for a board, a fraction keep of them filled in.
+    private int[][] randomClues(int size, double keep)
+    {
+        int[][] clues = new int[size][size];
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                clues[r][c] = random.nextDouble() < keep ? random.nextInt(4) : -1;
+        return clues;
+    }
+
+    // Returns a game with a random edge state: random lines, or a generated loop with a few changes.
+    private Puzzle randomGame(int size)
+    {
+        Puzzle p;
+        if (random.nextBoolean()) {
+            p = new Puzzle(PuzzleDefinition.intern(randomClues(size, random.nextDouble())));
+            double density = 0.02 + 0.6 * random.nextDouble();
+            for (int r = 0; r <= size; r++) {
+                for (int c = 0; c <= size; c++) {
+                    if (c < size && random.nextDouble() < density) p.horizontalClick(r, c);
+                    if (r < size && random.nextDouble() < density) p.verticalClick(r, c);
+                }
+            }
+        } else {
+            LoopGenerator generator = new LoopGenerator(size, random.nextLong(), 0.2 + 0.6 * random.nextDouble());
+            p = generator.toPuzzle();
+            for (int k = random.nextInt(4); k > 0; k--) toggleRandom(p);
+        }
+        return p;
+    }
+
+    // Toggles a random segment of p; returns {0 or 1 (horizontal or vertical), r, c}.
+    private int[] toggleRandom(Puzzle p)
+    {
+        int size = p.size();
+        if (random.nextBoolean()) {
+            int r = random.nextInt(size + 1);
+            int c = random.nextInt(size);
+            p.horizontalClick(r, c);
+            return new int[] {0, r, c};
+        }
+        int r = random.nextInt(size);
+        int c = random.nextInt(size + 1);
+        p.verticalClick(r, c);
+        return new int[] {1, r, c};
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Checks.
+
+    // Checks every fast path on p against the references.
+    private void checkAll(Puzzle p)
+    {
+        states++;
+        int size = p.size();
+        assertEquals(referenceFinished(p), AnalyzeSolution.finished(p));
+
+        Set<Integer> expected = new HashSet<>();
+        for (int[] square : referenceBadSquares(p)) expected.add(square[0] * size + square[1]);
+        Set<Integer> actual = new HashSet<>();
+        for (int[] square : AnalyzeSolution.badSquares(p)) actual.add(square[0] * size + square[1]);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), AnalyzeSolution.badSquareCount(p));
+
+        assertArrayEquals(referenceLineSegments(p), AnalyzeSolution.lineSegments(p));
+        for (int k = 0; k < 3; k++) {
+            int r = random.nextInt(size + 1);
+            int c = random.nextInt(size + 1);
+            assertEquals(referenceTracePath(p, r, c), AnalyzeSolution.tracePath(p, r, c));
+            if (r < size && c < size) assertEquals(referenceLinesAroundSquare(p, r, c), AnalyzeSolution.linesAroundSquare(p, r, c));
+        }
+
+        checkBits(p);
+
+        // nearestLineDistance is slow, so only a few squares
+        RevealMask mask = new RevealMask(p);
+        for (int k = 0; k < 3; k++) {
+            int r = random.nextInt(size);
+            int c = random.nextInt(size);
+            int distance = referenceNearestLineDistance(p, r, c);
+            assertEquals(distance, AnalyzeSolution.nearestLineDistance(p, r, c));
+            assertEquals(distance != -1 && distance <= RevealMask.RADIUS, mask.isRevealed(r, c));
+        }
+    }
+
+    // Checks the results that are cheap to work out on p against the references.
+    private void checkCheap(Puzzle p)
+    {
+        states++;
+        assertEquals(referenceFinished(p), AnalyzeSolution.finished(p));
+        assertEquals(referenceBadSquares(p).size(), AnalyzeSolution.badSquareCount(p));
+        assertArrayEquals(referenceLineSegments(p), AnalyzeSolution.lineSegments(p));
+    }
+
+    // Checks that the bit-packed rows of p match its segments.
+    private static void checkBits(Puzzle p)
+    {
+        boolean[][] horizontal = p.getHorizontal();
+        long[][] horizontalBits = p.getHorizontalBits();
+        for (int r = 0; r < horizontal.length; r++)
+            for (int c = 0; c < horizontal[r].length; c++)
+                assertEquals(horizontal[r][c], (horizontalBits[r][c >>> 6] >>> c & 1) != 0);
+        boolean[][] vertical = p.getVertical();
+        long[][] verticalBits = p.getVerticalBits();
+        for (int r = 0; r < vertical.length; r++)
+            for (int c = 0; c < vertical[r].length; c++)
+                assertEquals(vertical[r][c], (verticalBits[r][c >>> 6] >>> c & 1) != 0);
+    }
+
+    @Test
+    public void testrandomStates()
+    {
+        for (int board = 0; board < 400 * scale; board++) {
+            Puzzle p = randomGame(randomSize(board % 40 == 0 ? 500 : 120));
+            checkAll(p);
+        }
+        assertTrue(states >= 400 * scale);
+    }
+
+    @Test
+    public void testtoggles()
+    {
+        // long runs of single toggles, with forks, checked incrementally against plain copies
+        for (int board = 0; board < 600 * scale; board++) {
+            int size = randomSize(board % 10 == 0 ? 300 : 60);
+            Puzzle p = randomGame(size);
+            boolean[][] horizontal = copy(p.getHorizontal());
+            boolean[][] vertical = copy(p.getVertical());
+            RevealMask mask = new RevealMask(p);
+
+            for (int step = 0; step < 2000; step++) {
+                int[] toggled = toggleRandom(p);
+                boolean[][] segments = toggled[0] == 0 ? horizontal : vertical;
+                segments[toggled[1]][toggled[2]] = !segments[toggled[1]][toggled[2]];
+                int changed = toggled[0] == 0 ? mask.updateHorizontal(toggled[1], toggled[2]) : mask.updateVertical(toggled[1], toggled[2]);
+                assertTrue(changed <= mask.getChanged().length);
+
+                // every state of a small board is checked; bigger ones are checked below, every 500 steps
+                if (size <= 60) checkCheap(p);
+
+                // the squares near the toggle are revealed as the reference says
+                int r = Math.min(size - 1, Math.max(0, toggled[1] + random.nextInt(7) - 3));
+                int c = Math.min(size - 1, Math.max(0, toggled[2] + random.nextInt(7) - 3));
+                if (size <= 60 || step % 50 == 0) {
+                    int distance = referenceNearestLineDistance(p, r, c);
+                    assertEquals(distance != -1 && distance <= RevealMask.RADIUS, mask.isRevealed(r, c));
+                }
+
+                // a fork is independent of the game it came from
+                if (step % 400 == 399) {
+                    Puzzle fork = p.fork();
+                    toggleRandom(fork);
+                    toggleRandom(fork);
+                    checkBits(fork);
+                }
+                if (step % 500 == 499) {
+                    assertTrue(Arrays.deepEquals(horizontal, p.getHorizontal()));
+                    assertTrue(Arrays.deepEquals(vertical, p.getVertical()));
+                    checkBits(p);
+                    if (size <= 120) checkAll(p);
+                }
+            }
+        }
+        assertTrue(states >= 1000000 * scale);
+    }
+
+    // Returns a copy of segments.
+    private static boolean[][] copy(boolean[][] segments)
+    {
+        boolean[][] copy = new boolean[segments.length][];
+        for (int r = 0; r < segments.length; r++) copy[r] = segments[r].clone();
+        return copy;
+    }
+
+    @Test
+    public void testgrid()
+    {
+        // preprocessing, against the original recursive version
+        for (int board = 0; board < 300 * scale; board++) {
+            int size = randomSize(100);
+            int[][] clues = randomClues(size, random.nextDouble());
+            for (int r = 0; r < size; r++)
+                for (int c = 0; c < size; c++)
+                    if (clues[r][c] >= 0 && random.nextInt(3) == 0) clues[r][c] = 0;
+            PuzzleDefinition definition = PuzzleDefinition.intern(clues);
+            boolean[][][] grid = referenceGrid(clues);
+            assertTrue(Arrays.deepEquals(grid[0], definition.getGridHorizontal()));
+            assertTrue(Arrays.deepEquals(grid[1], definition.getGridVertical()));
+        }
+    }
+
+    @Test
+    public void testsaves() throws IOException
+    {
+        SaveGame saver = new SaveGame();
+        for (int board = 0; board < 200 * scale; board++) {
+            Puzzle p = randomGame(randomSize(board % 20 == 0 ? 500 : 60));
+            Puzzle loaded = SaveGame.decode(saver.encode(p));
+            assertSame(p.getDefinition(), loaded.getDefinition());
+            assertTrue(Arrays.deepEquals(p.getHorizontal(), loaded.getHorizontal()));
+            assertTrue(Arrays.deepEquals(p.getVertical(), loaded.getVertical()));
+            checkBits(loaded);
+
+            // every orientation of a board has the same canonical hash
+            int t = random.nextInt(CanonicalForm.TRANSFORMS);
+            assertEquals(new CanonicalForm(p.getPuzzle()).getHash(), new CanonicalForm(CanonicalForm.transform(p.getPuzzle(), t)).getHash());
+        }
+    }
+
+    @Test
+    public void testfixtures() throws Exception
+    {
+        List<String> verdicts = Files.readAllLines(Paths.get(getClass().getResource("fixtures/verdicts.txt").toURI()));
+        assertTrue(verdicts.size() >= 6);
+        for (String line : verdicts) {
+            int space = line.indexOf(' ');
+            String name = line.substring(0, space);
+            String verdict = line.substring(space + 1);
+            Puzzle p = SaveGame.load(Paths.get(getClass().getResource("fixtures/" + name).toURI()));
+            assertEquals(name, verdict, AnalyzeSolution.finished(p));
+            assertEquals(name, verdict, referenceFinished(p));
+            checkBits(p);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // The fixtures.
+
+    // Returns the numbers that match the lines drawn in p.
+    private static int[][] cluesOf(Puzzle p)
+    {
+        int[][] clues = new int[p.size()][p.size()];
+        for (int r = 0; r < p.size(); r++)
+            for (int c = 0; c < p.size(); c++)
+                clues[r][c] = AnalyzeSolution.linesAroundSquare(p, r, c);
+        return clues;
+    }
+
+    // Returns a game with the lines of p and numbers that match them.
+    private static Puzzle withMatchingClues(Puzzle p)
+    {
+        Puzzle q = new Puzzle(PuzzleDefinition.intern(cluesOf(p)));
+        for (int r = 0; r <= p.size(); r++) {
+            for (int c = 0; c <= p.size(); c++) {
+                if (c < p.size() && p.getHorizontal()[r][c]) q.getState().setHorizontal(r, c, true);
+                if (r < p.size() && p.getVertical()[r][c]) q.getState().setVertical(r, c, true);
+            }
+        }
+        return q;
+    }
+
+    // Draws a loop round Squares r,c and r,c+1 of p (a loop round one square would need a 4).
+    private static void rectangle(Puzzle p, int r, int c)
+    {
+        p.horizontalClick(r, c);
+        p.horizontalClick(r, c + 1);
+        p.horizontalClick(r + 1, c);
+        p.horizontalClick(r + 1, c + 1);
+        p.verticalClick(r, c);
+        p.verticalClick(r, c + 2);
+    }
+
+    /**
+     * Regenerates the fixtures in the directory given (normally src/fixtures).
+     */
+    public static void main(String[] args) throws IOException
+    {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "fixtures");
+        Files.createDirectories(directory);
+        SaveGame saver = new SaveGame();
+        Map<String, Puzzle> fixtures = new LinkedHashMap<>();
+
+        fixtures.put("loop500.sav", new LoopGenerator(500, 1).toPuzzle());
+        fixtures.put("loop200.sav", new LoopGenerator(200, 2).toPuzzle());
+
+        // a wrong number: one of the numbers changed
+        Puzzle loop = new LoopGenerator(200, 3).toPuzzle();
+        int[][] clues = cluesOf(loop);
+        clues[100][100] = (clues[100][100] + 1) % 4;
+        Puzzle wrong = new Puzzle(PuzzleDefinition.intern(clues));
+        for (int r = 0; r <= 200; r++) {
+            for (int c = 0; c <= 200; c++) {
+                if (c < 200 && loop.getHorizontal()[r][c]) wrong.getState().setHorizontal(r, c, true);
+                if (r < 200 && loop.getVertical()[r][c]) wrong.getState().setVertical(r, c, true);
+            }
+        }
+        fixtures.put("wrong200.sav", wrong);
+
+        // a dangling end: one segment of the loop removed, with numbers to match
+        loop = new LoopGenerator(200, 4).toPuzzle();
+        int[] start = AnalyzeSolution.lineSegments(loop);
+        if (loop.getHorizontal()[start[1]][start[2]]) loop.horizontalClick(start[1], start[2]);
+        else loop.verticalClick(start[1], start[2]);
+        fixtures.put("dangling200.sav", withMatchingClues(loop));
+
+        // disconnected lines: a separate 1x2 loop, well away from the main one
+        LoopGenerator small = new LoopGenerator(200, 5, 0.3);
+        loop = small.toPuzzle();
+        boolean[][] inside = small.getInside();
+        search:
+        for (int r = 1; r < 199; r++) {
+            for (int c = 1; c < 198; c++) {
+                boolean clear = true;
+                for (int dr = -1; dr <= 1; dr++)
+                    for (int dc = -1; dc <= 2; dc++)
+                        if (inside[r + dr][c + dc]) clear = false;
+                if (clear) {
+                    rectangle(loop, r, c);
+                    break search;
+                }
+            }
+        }
+        fixtures.put("disconnected200.sav", withMatchingClues(loop));
+
+        // a branching line: two 1x2 loops touching at a corner
+        Puzzle branching = new Puzzle(PuzzleDefinition.intern(new int[200][200]));
+        rectangle(branching, 50, 50);
+        rectangle(branching, 51, 52);
+        fixtures.put("branching200.sav", withMatchingClues(branching));
+
+        // no lines at all
+        int[][] blank = new int[300][300];
+        for (int[] row : blank) Arrays.fill(row, -1);
+        fixtures.put("empty300.sav", new Puzzle(PuzzleDefinition.intern(blank)));
+
+        try (Writer verdicts = Files.newBufferedWriter(directory.resolve("verdicts.txt"), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Puzzle> fixture : fixtures.entrySet()) {
+                saver.save(fixture.getValue(), directory.resolve(fixture.getKey()));
+                verdicts.write(fixture.getKey() + " " + referenceFinished(fixture.getValue()) + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Viewport maps a Slither Link board onto a window: which part of the board is on screen,
+ * and how big a square is drawn. It can be panned and zoomed, so a board far bigger than
+ * the window can still be played with squares a comfortable size.
+ *
+ * Board positions are in squares (Dot r,c is at column c, row r) and screen positions in pixels.
+ * The board keeps a margin of one square round it, and is centred on an axis it fits on.
+ *
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+
+public class Viewport
+{
+    public static final int MIN_CELL_SIZE = 4;
+    public static final int MAX_CELL_SIZE = 150;
+
+    private final int boardSize;
+    private final int width;
+    private final int height;
+    private int cellSize;
+    private int originX;        // the screen position of Dot 0,0
+    private int originY;
+
+    /**
+     * Creates a viewport of a board of the given size, in a window width by height pixels,
+     * with squares cellSize pixels across, showing the top left corner of the board.
+     */
+    public Viewport(int boardSize, int width, int height, int cellSize)
+    {
+        this.boardSize = boardSize;
+        this.width = width;
+        this.height = height;
+        this.cellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellSize));
+        originX = this.cellSize;
+        originY = this.cellSize;
+        clamp();
+    }
+
+    /**
+     * Returns the size of a square in pixels.
+     */
+    public int getCellSize()
+    {
+        return cellSize;
+    }
+
+    /**
+     * Returns the screen x of the dots in column c.
+     */
+    public int x(int c)
+    {
+        return originX + c * cellSize;
+    }
+
+    /**
+     * Returns the screen y of the dots in row r.
+     */
+    public int y(int r)
+    {
+        return originY + r * cellSize;
+    }
+
+    /**
+     * Returns the board column at screen x; a fraction is part way across a square.
+     */
+    public double column(int x)
+    {
+        return (x - originX) / (double) cellSize;
+    }
+
+    /**
+     * Returns the board row at screen y; a fraction is part way down a square.
+     */
+    public double row(int y)
+    {
+        return (y - originY) / (double) cellSize;
+    }
+
+    /**
+     * Returns the screen x of the dots in column 0.
+     */
+    public int getOriginX()
+    {
+        return originX;
+    }
+
+    /**
+     * Returns the screen y of the dots in row 0.
+     */
+    public int getOriginY()
+    {
+        return originY;
+    }
+
+    /**
+     * Returns the first column of dots that is on screen, or touches a square that is.
+     */
+    public int firstColumn()
+    {
+        return first(originX);
+    }
+
+    /**
+     * Returns the last column of dots that is on screen, or touches a square that is.
+     */
+    public int lastColumn()
+    {
+        return last(originX, width);
+    }
+
+    /**
+     * Returns the first row of dots that is on screen, or touches a square that is.
+     */
+    public int firstRow()
+    {
+        return first(originY);
+    }
+
+    /**
+     * Returns the last row of dots that is on screen, or touches a square that is.
+     */
+    public int lastRow()
+    {
+        return last(originY, height);
+    }
+
+    private int first(int origin)
+    {
+        return Math.max(0, Math.min(boardSize, Math.floorDiv(-origin, cellSize)));
+    }
+
+    private int last(int origin, int extent)
+    {
+        return Math.max(0, Math.min(boardSize, Math.floorDiv(extent - origin, cellSize) + 1));
+    }
+
+    /**
+     * Moves the board dx pixels right and dy pixels down, as far as its margin allows.
+     * Returns whether the view changed.
+     */
+    public boolean pan(int dx, int dy)
+    {
+        int oldX = originX;
+        int oldY = originY;
+        originX += dx;
+        originY += dy;
+        clamp();
+        return originX != oldX || originY != oldY;
+    }
+
+    /**
+     * Zooms by factor, keeping the board point under screen position x,y where it is.
+     * Returns whether the view changed.
+     */
+    public boolean zoom(double factor, int x, int y)
+    {
+        int newCellSize = (int) Math.round(cellSize * factor);
+        if (newCellSize == cellSize) newCellSize += factor > 1 ? 1 : -1;
+        newCellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, newCellSize));
+        if (newCellSize == cellSize) return false;
+
+        double column = column(x);
+        double row = row(y);
+        cellSize = newCellSize;
+        originX = (int) Math.round(x - column * cellSize);
+        originY = (int) Math.round(y - row * cellSize);
+        clamp();
+        return true;
+    }
+
+    /**
+     * Keeps the board and its margin covering the window, or centred on an axis where it fits.
+     */
+    private void clamp()
+    {
+        originX = clamp(originX, width);
+        originY = clamp(originY, height);
+    }
+
+    private int clamp(int origin, int extent)
+    {
+        int board = boardSize * cellSize;
+        if (board + 2 * cellSize <= extent) return (extent - board) / 2;
+        return Math.max(extent - board - cellSize, Math.min(cellSize, origin));
+    }
+}
@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides unit test cases for the Viewport class.
+ * @author Abdihafith Isse
+ * @version 1.0
+ */
+public class ViewportTest
+{
+    private Viewport small;     // a 5x5 board that fits in its window
+    private Viewport large;     // a 1000x1000 board that doesn't
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        small = new Viewport(5, 525, 525, 75);
+        large = new Viewport(1000, 600, 600, 20);
+    }
+
+    @Test
+    public void testfits()
+    {
+        // the whole board, with a margin of one square
+        assertEquals(75, small.x(0));
+        assertEquals(450, small.y(5));
+        assertEquals(0, small.firstRow());
+        assertEquals(5, small.lastColumn());
+
+        // a board that fits is centred, and can't be panned
+        assertFalse(small.pan(30, -30));
+        assertEquals(75, small.x(0));
+        assertTrue(small.zoom(0.5, 0, 0));
+        assertEquals(38, small.getCellSize());
+        assertEquals((525 - 5 * 38) / 2, small.x(0));
+    }
+
+    @Test
+    public void testvisible()
+    {
+        // starting in the top left corner
+        assertEquals(20, large.x(0));
+        assertEquals(0, large.firstColumn());
+        assertEquals(30, large.lastColumn());
+        assertEquals(30, large.lastRow());
+
+        // only about a window's worth of dots, wherever the view is
+        assertTrue(large.pan(-10000, -5000));
+        assertEquals(-9980, large.x(0));
+        assertEquals(499, large.firstColumn());
+        assertEquals(530, large.lastColumn());
+        assertEquals(249, large.firstRow());
+        assertTrue(large.x(large.firstColumn()) <= 0 && large.x(large.firstColumn() + 1) > 0);
+        assertTrue(large.x(large.lastColumn()) >= 600);
+    }
+
+    @Test
+    public void testclamp()
+    {
+        // the far corner, with its margin, stays in the window
+        large.pan(-1000000, -1000000);
+        assertEquals(600 - 20, large.x(1000));
+        assertEquals(600 - 20, large.y(1000));
+        assertEquals(1000, large.lastColumn());
+        large.pan(1000000, 0);
+        assertEquals(20, large.x(0));
+    }
+
+    @Test
+    public void testzoom()
+    {
+        large.pan(-4000, -4000);
+        double column = large.column(300);
+        double row = large.row(200);
+        assertTrue(large.zoom(2.0, 300, 200));
+        assertEquals(40, large.getCellSize());
+
+        // the point under the mouse stays put
+        assertEquals(column, large.column(300), 0.05);
+        assertEquals(row, large.row(200), 0.05);
+
+        // down to the smallest size, and no further
+        while (large.zoom(0.5, 300, 200));
+        assertEquals(Viewport.MIN_CELL_SIZE, large.getCellSize());
+        assertTrue(large.lastColumn() - large.firstColumn() <= 600 / Viewport.MIN_CELL_SIZE + 2);
+        assertFalse(large.zoom(0.5, 300, 200));
+    }
+}